@@ -0,0 +1,63 @@
+package org.cryptodemo;
+
+import org.cryptodemo.tools.TickDataGenerator;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Generated price files and application contexts shared by the benchmarks.
+ */
+public final class BenchmarkData {
+
+    /** Generated rows cover one year ending at the time of generation. */
+    public static final long HISTORY_MILLIS = Duration.ofDays(365).toMillis();
+    /** Symbols price files are generated for. */
+    public static final List<String> SYMBOLS = List.of("BTC", "DOGE", "ETH", "LTC", "XRP");
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Writes a {@code <SYMBOL>_values.csv} file with about {@code rowCount} rows for each of {@link #SYMBOLS} using
+     * {@link TickDataGenerator}, so the files are the same for the same row count and end time.
+     * @return directory with the generated files
+     */
+    public static Path writePriceFiles(final int rowCount, final long untilMillis) throws IOException {
+        final Path directory = Files.createTempDirectory("crypto-benchmark");
+        final long interval = Math.max(HISTORY_MILLIS / rowCount, 1);
+        for (String symbol : SYMBOLS) {
+            TickDataGenerator.generate(directory, symbol, untilMillis - HISTORY_MILLIS, untilMillis, interval, rowCount);
+        }
+        return directory;
+    }
+
+    /**
+     * Starts the application without the web server, reading price files from {@code directory}.
+     */
+    public static ConfigurableApplicationContext startApplication(final Path directory, final String... properties) {
+        return new SpringApplicationBuilder(CryptoDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("datasource.url=jdbc:relique:csv:" + directory, "datasource.watch.enabled=false")
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * Deletes a directory written by {@link #writePriceFiles}.
+     */
+    public static void delete(final Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
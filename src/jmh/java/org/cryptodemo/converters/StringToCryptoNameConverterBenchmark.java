@@ -0,0 +1,51 @@
+package org.cryptodemo.converters;
+
+import org.cryptodemo.BenchmarkData;
+import org.cryptodemo.dal.SymbolRegistry;
+import org.cryptodemo.data.CryptoName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringToCryptoNameConverterBenchmark {
+
+    @Param({"BTC", "eth", "New_Unsupported"})
+    public String source;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private StringToCryptoNameConverter converter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkData.writePriceFiles(10, System.currentTimeMillis());
+        context = BenchmarkData.startApplication(directory);
+        converter = new StringToCryptoNameConverter(context.getBean(SymbolRegistry.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public CryptoName convert() {
+        return converter.convert(source);
+    }
+}
@@ -0,0 +1,90 @@
+package org.cryptodemo.dal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.cryptodemo.BenchmarkData;
+import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.entity.CryptoRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads of {@link CryptoRepository}: materializing a time window from a loaded price history and loading the
+ * history of a crypto from a CSV file by csvjdbc or {@link ParallelCsvReader}, for each {@link PriceStorage}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CryptoRepositoryBenchmark {
+
+    private static final CryptoName BTC = CryptoName.of("BTC");
+
+    @Param({"100", "100000"})
+    public int rowCount;
+
+    @Param({"1", "30"})
+    public int windowDays;
+
+    @Param({"HEAP", "COMPRESSED"})
+    public PriceStorage storage;
+
+    @Param({"false", "true"})
+    public boolean parallelRead;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private CryptoRepository repository;
+    private CryptoRepository coldRepository;
+    private String datasourceUrl;
+    private long from;
+    private long until;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        until = System.currentTimeMillis();
+        from = until - Duration.ofDays(windowDays).toMillis();
+        directory = BenchmarkData.writePriceFiles(rowCount, until);
+        datasourceUrl = "jdbc:relique:csv:" + directory;
+        context = BenchmarkData.startApplication(directory, "datasource.storage=" + storage);
+        repository = context.getBean(CryptoRepository.class);
+        repository.getPriceSeries(BTC);
+    }
+
+    @Setup(Level.Invocation)
+    public void newRepository() {
+        coldRepository = new CryptoRepository(context.getBean(CsvConnectionPool.class),
+                context.getBean(ParallelCsvReader.class), context.getBean(MeterRegistry.class), datasourceUrl, "",
+                storage, parallelRead);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public List<CryptoRecord> getCryptoRecordsTimestamps() throws SQLException {
+        return repository.getCryptoRecordsTimestamps(BTC, from, until);
+    }
+
+    @Benchmark
+    public PriceSeries loadPriceSeries() throws SQLException {
+        return coldRepository.getPriceSeries(BTC);
+    }
+}
@@ -0,0 +1,58 @@
+package org.cryptodemo.data;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cryptodemo.BenchmarkData;
+import org.cryptodemo.data.dto.CryptoStatsWithNormalizedRange;
+import org.cryptodemo.data.dto.CryptoTimeRangeStats;
+import org.cryptodemo.data.dto.PriceStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of {@code /crypto/dayTop} and {@code /crypto/top} responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "5", "100"})
+    public int cryptoCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<CryptoStatsWithNormalizedRange> stats;
+
+    @Setup
+    public void setUp() {
+        stats = new ArrayList<>(cryptoCount);
+        for (int i = 0; i < cryptoCount; i++) {
+            stats.add(new CryptoStatsWithNormalizedRange(
+                    new CryptoTimeRangeStats(CryptoName.of(BenchmarkData.SYMBOLS.get(i % BenchmarkData.SYMBOLS.size())),
+                            1642039200000L + i, 1642100400000L + i,
+                            new PriceStats(Price.parse("46813.21"), Price.parse("38415.79"),
+                                    Price.parse("33276.59"), Price.parse("47722.66"))),
+                    Price.parse("0.4341")));
+        }
+    }
+
+    @Benchmark
+    public String serializeOne() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(stats.get(0));
+    }
+
+    @Benchmark
+    public String serializeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(stats);
+    }
+}
@@ -0,0 +1,104 @@
+package org.cryptodemo.services;
+
+import org.cryptodemo.BenchmarkData;
+import org.cryptodemo.dal.CryptoRepository;
+import org.cryptodemo.dal.SymbolRegistry;
+import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.dto.CryptoStatsWithNormalizedRange;
+import org.cryptodemo.data.dto.CryptoTimeRangeStats;
+import org.cryptodemo.data.dto.RollingRange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics calculated by {@link CryptoService} over loaded price histories, with and without the result cache.
+ * {@code getCryptoInfo} always covers the last month, {@code getTopCryptos} covers the last {@code windowDays}.
+ * {@code getCryptoInfoExtended} adds extended statistics, merged from cached days unless {@code cached} is false.
+ * {@code getRollingRanges} samples a 7 day window hourly over the last {@code windowDays}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CryptoServiceBenchmark {
+
+    @Param({"100", "100000"})
+    public int rowCount;
+
+    @Param({"1", "30", "365"})
+    public int windowDays;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private CryptoService service;
+    private long from;
+    private long until;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        until = System.currentTimeMillis();
+        from = until - Duration.ofDays(windowDays).toMillis();
+        directory = BenchmarkData.writePriceFiles(rowCount, until);
+        context = BenchmarkData.startApplication(directory);
+        final CryptoRepository repository = context.getBean(CryptoRepository.class);
+        final SymbolRegistry registry = context.getBean(SymbolRegistry.class);
+        for (CryptoName cryptoName : registry.symbols()) {
+            repository.getPriceSeries(cryptoName);
+        }
+        final CryptoStatsCache cache = cached
+                ? context.getBean(CryptoStatsCache.class)
+                : new CryptoStatsCache(1, 0, 1);
+        final ExtendedStatsCalculator extendedStatsCalculator = cached
+                ? context.getBean(ExtendedStatsCalculator.class)
+                : new ExtendedStatsCalculator(0);
+        service = new CryptoService(repository, registry, context.getBean("cryptoStatsExecutor", ExecutorService.class), cache,
+                context.getBean(DailyLeaderboard.class), extendedStatsCalculator,
+                Duration.ofSeconds(10).toMillis());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public CryptoTimeRangeStats getCryptoInfo() {
+        return service.getCryptoInfo(CryptoName.of("BTC"), 0);
+    }
+
+    @Benchmark
+    public CryptoTimeRangeStats getCryptoInfoExtended() {
+        return service.getCryptoInfo(CryptoName.of("BTC"), 0, true);
+    }
+
+    @Benchmark
+    public List<RollingRange> getRollingRanges() {
+        return service.getRollingRanges(CryptoName.of("BTC"), from, until, Duration.ofDays(7).toMillis(),
+                Duration.ofHours(1).toMillis());
+    }
+
+    @Benchmark
+    public List<CryptoStatsWithNormalizedRange> getTopCryptos() {
+        return service.getTopCryptos(from, until);
+    }
+}
@@ -0,0 +1,86 @@
+package org.cryptodemo.admission;
+
+import org.cryptodemo.sharding.ShardClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Admits requests through {@link AdmissionLimiter} before they are handled. Requests mapped to one of
+ * {@code crypto.admission.low-priority-patterns} are admitted with {@link AdmissionLimiter.Priority#LOW}. Clients are
+ * told apart by their remote address. Behind one of {@code crypto.admission.trusted-proxies} it is the last address
+ * of {@code X-Forwarded-For} not added by a trusted proxy, as the addresses before it are written by the client.
+ * <p>
+ * The permit is taken on the initial dispatch and released when the request completes, which is after the async
+ * dispatch for requests answered asynchronously.
+ */
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".permit";
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private final AdmissionLimiter limiter;
+    private final ShardClient shardClient;
+    private final boolean enabled;
+    private final Set<String> lowPriorityPatterns;
+    private final Set<String> trustedProxies;
+
+    public AdmissionInterceptor(final AdmissionLimiter limiter,
+                                final ShardClient shardClient,
+                                @Value("${crypto.admission.enabled}") final boolean enabled,
+                                @Value("${crypto.admission.low-priority-patterns}") final List<String> lowPriorityPatterns,
+                                @Value("${crypto.admission.trusted-proxies}") final List<String> trustedProxies) {
+        this.limiter = limiter;
+        this.shardClient = shardClient;
+        this.enabled = enabled;
+        this.lowPriorityPatterns = Set.copyOf(lowPriorityPatterns);
+        this.trustedProxies = Set.copyOf(trustedProxies);
+    }
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response, final Object handler) {
+        if (!enabled || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        final AdmissionLimiter.Priority priority = lowPriorityPatterns.contains(pattern)
+                ? AdmissionLimiter.Priority.LOW : AdmissionLimiter.Priority.HIGH;
+        // requests forwarded by another shard were already admitted for their client there
+        final String client = shardClient.isForwardedByShard(request) ? null : client(request);
+        request.setAttribute(PERMIT_ATTRIBUTE, limiter.acquire(client, priority));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(final HttpServletRequest request, final HttpServletResponse response, final Object handler,
+                                final Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AdmissionLimiter.Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            limiter.release(permit, System.nanoTime() - permit.startNanos());
+        }
+    }
+
+    private String client(final HttpServletRequest request) {
+        String client = request.getRemoteAddr();
+        final String forwardedFor = request.getHeader(FORWARDED_FOR_HEADER);
+        if (forwardedFor == null) {
+            return client;
+        }
+        // each trusted proxy appends the address it got the request from, walked back to the first untrusted one
+        final String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0 && trustedProxies.contains(client); i--) {
+            if (!hops[i].isBlank()) {
+                client = hops[i].trim();
+            }
+        }
+        return client;
+    }
+}
@@ -0,0 +1,166 @@
+package org.cryptodemo.admission;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.cryptodemo.errors.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a request is handled or rejected right away, so an overloaded instance answers excess requests
+ * quickly instead of queueing them until they time out.
+ * <p>
+ * Each client gets a {@link TokenBucket} of {@code crypto.admission.client-burst} requests refilled at
+ * {@code crypto.admission.client-rate} requests per second. Requests in progress are limited by a concurrency limit
+ * adapted to the observed latency: a request slower than {@code crypto.admission.latency-target-ms} cuts the limit
+ * by {@link #BACKOFF_RATIO}, at most once per generation of requests admitted since the previous cut, and each request
+ * completing in time while the limit is used by at least a half raises it by {@code 1 / limit}, i.e. by one per
+ * {@code limit} requests. {@link Priority#LOW} requests may only use {@code crypto.admission.low-priority-share} of the
+ * limit, so they are shed first.
+ */
+@Component
+public class AdmissionLimiter implements MeterBinder {
+
+    static final double BACKOFF_RATIO = 0.9;
+
+    public enum Priority {
+        /** Cheap requests of a single crypto. */
+        HIGH,
+        /** Requests reading all cryptos, rejected first under load. */
+        LOW
+    }
+
+    /**
+     * Admission of a request, to be {@linkplain #release(Permit, long) released} when the request completes.
+     * @param generation number of limit cuts before the request was admitted
+     * @param startNanos {@link System#nanoTime()} when the request was admitted
+     */
+    public record Permit(long generation, long startNanos) {
+    }
+
+    private final double clientRate;
+    private final int clientBurst;
+    private final Cache<String, TokenBucket> buckets;
+    private final long latencyTargetNanos;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double lowPriorityShare;
+    private final LongAdder clientRejections = new LongAdder();
+    private final LongAdder concurrencyRejections = new LongAdder();
+
+    /** Guarded by this. */
+    private double limit;
+    private int inFlight;
+    private long generation;
+
+    public AdmissionLimiter(@Value("${crypto.admission.client-rate}") final double clientRate,
+                            @Value("${crypto.admission.client-burst}") final int clientBurst,
+                            @Value("${crypto.admission.max-clients}") final long maxClients,
+                            @Value("${crypto.admission.latency-target-ms}") final long latencyTargetMillis,
+                            @Value("${crypto.admission.initial-limit}") final int initialLimit,
+                            @Value("${crypto.admission.min-limit}") final int minLimit,
+                            @Value("${crypto.admission.max-limit}") final int maxLimit,
+                            @Value("${crypto.admission.low-priority-share}") final double lowPriorityShare) {
+        this.clientRate = clientRate;
+        this.clientBurst = clientBurst;
+        // an idle bucket is full again after burst / rate seconds, so it can be dropped without losing its state
+        this.buckets = CacheBuilder.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(clientRate > 0 ? Math.max((long) Math.ceil(clientBurst / clientRate * 1000), 1) : 1,
+                        TimeUnit.MILLISECONDS)
+                .build();
+        this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.lowPriorityShare = lowPriorityShare;
+        this.limit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+    }
+
+    /**
+     * Admits a request or rejects it.
+     * @param client address of the client, {@code null} for requests not limited per client such as requests
+     * forwarded by another shard
+     * @param priority priority of the request
+     * @return permit of the admitted request
+     * @throws TooManyRequestsException if the client sent too many requests or too many requests are in progress
+     */
+    public Permit acquire(final String client, final Priority priority) {
+        final long now = System.nanoTime();
+        if (client != null && clientRate > 0 && !bucket(client, now).tryTake(now)) {
+            clientRejections.increment();
+            throw new TooManyRequestsException("Too many requests from " + client);
+        }
+        synchronized (this) {
+            final double allowed = priority == Priority.LOW ? Math.max(limit * lowPriorityShare, 1) : limit;
+            if (inFlight >= (int) allowed) {
+                concurrencyRejections.increment();
+                throw new TooManyRequestsException("Too many requests in progress");
+            }
+            inFlight++;
+            return new Permit(generation, now);
+        }
+    }
+
+    /**
+     * Releases the permit of a completed request and adapts the concurrency limit to its latency.
+     * @param latencyNanos time from admission to completion of the request
+     */
+    public synchronized void release(final Permit permit, final long latencyNanos) {
+        final boolean utilized = inFlight * 2 >= limit;
+        inFlight--;
+        if (latencyNanos > latencyTargetNanos) {
+            if (permit.generation() == generation) {
+                limit = Math.max(limit * BACKOFF_RATIO, minLimit);
+                generation++;
+            }
+        } else if (utilized) {
+            limit = Math.min(limit + 1 / limit, maxLimit);
+        }
+    }
+
+    /**
+     * @return current concurrency limit rounded down
+     */
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("crypto.admission.limit", this, AdmissionLimiter::limit)
+                .description("Current limit of requests in progress")
+                .register(registry);
+        Gauge.builder("crypto.admission.in-flight", this, AdmissionLimiter::inFlight)
+                .description("Admitted requests in progress")
+                .register(registry);
+        FunctionCounter.builder("crypto.admission.rejected", clientRejections, LongAdder::sum)
+                .description("Requests rejected by admission control")
+                .tag("reason", "client-rate")
+                .register(registry);
+        FunctionCounter.builder("crypto.admission.rejected", concurrencyRejections, LongAdder::sum)
+                .description("Requests rejected by admission control")
+                .tag("reason", "concurrency")
+                .register(registry);
+    }
+
+    private TokenBucket bucket(final String client, final long now) {
+        try {
+            return buckets.get(client, () -> new TokenBucket(clientRate, clientBurst, now));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.cryptodemo.admission;
+
+/**
+ * Token bucket of a single client: holds up to {@code capacity} tokens, refilled at {@code rate} tokens per second,
+ * and starts full.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(final double rate, final double capacity, final long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = rate / 1e9;
+        this.tokens = capacity;
+        this.refilledAt = nowNanos;
+    }
+
+    /**
+     * @return {@code true} if a token was taken, {@code false} if the bucket is empty
+     */
+    synchronized boolean tryTake(final long nowNanos) {
+        if (nowNanos > refilledAt) {
+            tokens = Math.min(capacity, tokens + (nowNanos - refilledAt) * tokensPerNano);
+            refilledAt = nowNanos;
+        }
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package org.cryptodemo.configuration;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Bounded pool used to calculate statistics of several cryptos in parallel. When both the threads and the queue
+     * are busy the task runs on the calling thread, so a request is slowed down rather than rejected.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService cryptoStatsExecutor(@Value("${crypto.stats.parallelism}") final int parallelism,
+                                               @Value("${crypto.stats.queue-capacity}") final int queueCapacity) {
+        return new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("crypto-stats-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Bounded pool running the requests of {@code AppController}, so servlet threads are not blocked while data is
+     * read. When both the threads and the queue are busy the request is rejected with 503 rather than queued.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService cryptoRequestExecutor(@Value("${crypto.requests.parallelism}") final int parallelism,
+                                                 @Value("${crypto.requests.queue-capacity}") final int queueCapacity) {
+        return new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("crypto-request-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Pool parsing parts of a price file in parallel while it is read on first access, sized to the number of
+     * processors when the configured parallelism is {@code 0}.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ForkJoinPool priceReadPool(@Value("${datasource.parallel-read.parallelism}") final int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("price-read-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+}
@@ -1,22 +1,47 @@
 package org.cryptodemo.configuration;
 
+import org.cryptodemo.admission.AdmissionInterceptor;
 import org.cryptodemo.converters.StringToCryptoNameConverter;
+import org.cryptodemo.dal.SymbolRegistry;
+import org.cryptodemo.sharding.ShardRoutingInterceptor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.format.FormatterRegistry;
 import org.springframework.validation.beanvalidation.MethodValidationPostProcessor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final SymbolRegistry symbolRegistry;
+    private final AdmissionInterceptor admissionInterceptor;
+    private final ShardRoutingInterceptor shardRoutingInterceptor;
+
+    public WebConfig(final SymbolRegistry symbolRegistry, final AdmissionInterceptor admissionInterceptor,
+                     final ShardRoutingInterceptor shardRoutingInterceptor) {
+        this.symbolRegistry = symbolRegistry;
+        this.admissionInterceptor = admissionInterceptor;
+        this.shardRoutingInterceptor = shardRoutingInterceptor;
+    }
+
     @Override
     public void addFormatters(FormatterRegistry registry) {
-        registry.addConverter(new StringToCryptoNameConverter());
+        registry.addConverter(new StringToCryptoNameConverter(symbolRegistry));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // exports stream for as long as the client reads, they are limited by the request executor only
+        registry.addInterceptor(admissionInterceptor)
+                .addPathPatterns("/crypto/**")
+                .excludePathPatterns("/crypto/*/export");
+        registry.addInterceptor(shardRoutingInterceptor)
+                .addPathPatterns("/crypto/pricesInfo/*", "/crypto/*/candles", "/crypto/*/rolling", "/crypto/*/export");
     }
 
     @Bean
-    public MethodValidationPostProcessor methodValidationPostProcessor() {
+    public static MethodValidationPostProcessor methodValidationPostProcessor() {
         return new MethodValidationPostProcessor();
     }
 }
\ No newline at end of file
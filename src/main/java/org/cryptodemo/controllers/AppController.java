@@ -1,5 +1,6 @@
 package org.cryptodemo.controllers;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
@@ -9,26 +10,67 @@ import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.cryptodemo.dal.PriceCursor;
 import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.dto.Candle;
+import org.cryptodemo.data.dto.CryptoStatsQuery;
 import org.cryptodemo.data.dto.CryptoStatsWithNormalizedRange;
 import org.cryptodemo.data.dto.CryptoTimeRangeStats;
+import org.cryptodemo.data.dto.DailyTopCrypto;
+import org.cryptodemo.data.dto.RollingRange;
 import org.cryptodemo.errors.ApiError;
+import org.cryptodemo.errors.BadRequestException;
 import org.cryptodemo.errors.DataNotFoundException;
 import org.cryptodemo.services.CryptoService;
+import org.cryptodemo.sharding.ShardClient;
+import org.cryptodemo.sharding.ShardRouter;
+import org.cryptodemo.sharding.ShardRoutingInterceptor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.Size;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import static java.util.Comparator.comparing;
 import static org.cryptodemo.time.TimeUtils.getUnixEpochMillisNMonthsBack;
 
 @RestController
@@ -36,10 +78,35 @@ import static org.cryptodemo.time.TimeUtils.getUnixEpochMillisNMonthsBack;
 @Validated
 public class AppController {
 
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_CANDLES = 10_000;
+    private static final int MAX_SAMPLES = 10_000;
+    private static final int MAX_DAYS = 3660;
+    private static final int EXPORT_BUFFER_SIZE = 8192;
+    private static final TypeReference<List<CryptoStatsWithNormalizedRange>> RANKED_STATS = new TypeReference<>() {};
+    private static final TypeReference<CryptoStatsWithNormalizedRange> RANKED_STATS_ENTRY = new TypeReference<>() {};
+    private static final TypeReference<List<CryptoTimeRangeStats>> STATS = new TypeReference<>() {};
+    private static final TypeReference<List<DailyTopCrypto>> DAILY_TOP = new TypeReference<>() {};
+
     private final CryptoService cryptoService;
+    private final ShardRouter shardRouter;
+    private final ShardClient shardClient;
+    private final ResponseValidators responseValidators;
+    private final ExecutorService requestExecutor;
+    private final long requestTimeoutMillis;
 
-    public AppController(final CryptoService cryptoService) {
+    public AppController(final CryptoService cryptoService,
+                         final ShardRouter shardRouter,
+                         final ShardClient shardClient,
+                         final ResponseValidators responseValidators,
+                         @Qualifier("cryptoRequestExecutor") final ExecutorService requestExecutor,
+                         @Value("${crypto.requests.timeout-ms}") final long requestTimeoutMillis) {
         this.cryptoService = cryptoService;
+        this.shardRouter = shardRouter;
+        this.shardClient = shardClient;
+        this.responseValidators = responseValidators;
+        this.requestExecutor = requestExecutor;
+        this.requestTimeoutMillis = requestTimeoutMillis;
     }
 
     @Operation(summary = "Return a descending sorted list of all the cryptos, comparing the normalized range (i.e. (max-min)/min)")
@@ -54,16 +121,27 @@ public class AppController {
     @GetMapping(value = "/top", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseStatus(value = HttpStatus.OK)
     @Validated
-    public List<CryptoStatsWithNormalizedRange> getTopCryptos(@RequestParam(defaultValue = "0") @Min(0) final int monthsBefore) {
+    public CompletableFuture<ResponseEntity<?>> getTopCryptos(@RequestParam(defaultValue = "0") @Min(0) final int monthsBefore,
+                                                              final HttpServletRequest request) {
         final long unixEpochMillisFrom = getUnixEpochMillisNMonthsBack(monthsBefore + 1);
         final long unixEpochMillisUntil = getUnixEpochMillisNMonthsBack(monthsBefore);
-        return cryptoService.getTopCryptos(unixEpochMillisFrom, unixEpochMillisUntil);
+        final Optional<ResponseValidators.Validators> validators = shardClient.routesToShards(request)
+                ? Optional.empty()
+                : responseValidators.forSlidingWindow(cryptoService.getCryptoNames(), "top", monthsBefore);
+        final CompletableFuture<List<List<CryptoStatsWithNormalizedRange>>> shards =
+                shardClient.scatter(request, "/crypto/top?monthsBefore=" + monthsBefore, RANKED_STATS);
+        return conditional(request, validators, () -> ResponseEntity.ok(Stream.concat(
+                        cryptoService.getTopCryptos(unixEpochMillisFrom, unixEpochMillisUntil).stream(),
+                        shards.join().stream().flatMap(List::stream))
+                .sorted(comparing(CryptoStatsWithNormalizedRange::normalizedRange).reversed())
+                .toList()));
     }
 
     @Operation(summary = "Return the oldest/newest/min/max values for a requested crypto")
     @Parameters({
             @Parameter(name = "cryptoName", description = "Crypto for which to get prices", example = "ETH"),
-            @Parameter(name = "monthsBefore", description = "Number of months to look into past", example = "8")
+            @Parameter(name = "monthsBefore", description = "Number of months to look into past", example = "8"),
+            @Parameter(name = "extended", description = "Add count, mean, standard deviation, time-weighted average and quantiles of all prices", example = "true")
     })
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Last month statistics for requested crypto",
@@ -75,13 +153,207 @@ public class AppController {
     @GetMapping(value = "/pricesInfo/{cryptoName}", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseStatus(value = HttpStatus.OK)
     @Validated
-    public ResponseEntity<?> getCryptoPricesInfo(@PathVariable("cryptoName") final CryptoName cryptoName,
-                                                 @RequestParam(defaultValue = "0") @Min(0) final int monthsBefore) {
+    public CompletableFuture<ResponseEntity<?>> getCryptoPricesInfo(@PathVariable("cryptoName") final CryptoName cryptoName,
+                                                                    @RequestParam(defaultValue = "0") @Min(0) final int monthsBefore,
+                                                                    @RequestParam(defaultValue = "false") final boolean extended,
+                                                                    final HttpServletRequest request) {
+        final Optional<String> shard = ShardRoutingInterceptor.owningShard(request);
+        if (shard.isPresent()) {
+            return shardClient.forward(shard.get(), request);
+        }
+        final Optional<ResponseValidators.Validators> validators =
+                responseValidators.forSlidingWindow(List.of(cryptoName), "pricesInfo", monthsBefore, extended);
+        return conditional(request, validators, () -> {
+            try {
+                return ResponseEntity.ok(cryptoService.getCryptoInfo(cryptoName, monthsBefore, extended));
+            } catch (DataNotFoundException e) {
+                return new ResponseEntity<>(new ApiError("crypto-not-found", e.getMessage()), HttpStatus.NOT_FOUND);
+            }
+        });
+    }
+
+    @Operation(summary = "Return the oldest/newest/min/max values for a batch of crypto time windows")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics in the order of the requested windows",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema( schema = @Schema(implementation = CryptoTimeRangeStats.class))) }),
+            @ApiResponse(responseCode = "404", description = "No data available for one of requested cryptos",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiError.class))}) })
+    @PostMapping(value = "/pricesInfo", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(value = HttpStatus.OK)
+    @Validated
+    public CompletableFuture<ResponseEntity<?>> getCryptoPricesInfos(
+            @RequestBody @Size(min = 1, max = MAX_BATCH_SIZE) final List<@Valid CryptoStatsQuery> queries,
+            final HttpServletRequest request) {
+        final boolean sharded = shardClient.routesToShards(request);
+        return async(() -> {
+            try {
+                return ResponseEntity.ok(sharded ? getShardedCryptoInfos(queries) : cryptoService.getCryptoInfos(queries));
+            } catch (DataNotFoundException e) {
+                return new ResponseEntity<>(new ApiError("crypto-not-found", e.getMessage()), HttpStatus.NOT_FOUND);
+            }
+        });
+    }
+
+    @Operation(summary = "Return open/high/low/close candles of a crypto for a time range")
+    @Parameters({
+            @Parameter(name = "cryptoName", description = "Crypto for which to get candles", example = "ETH"),
+            @Parameter(name = "from", description = "Unix timestamp of the range start (inclusive)", example = "1641013200000"),
+            @Parameter(name = "until", description = "Unix timestamp of the range end (inclusive)", example = "1643605200000"),
+            @Parameter(name = "interval", description = "Candle interval, aligned to Unix Epoch", example = "1h")
+    })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Candles of intervals with data, sorted by start",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema( schema = @Schema(implementation = Candle.class))) }),
+            @ApiResponse(responseCode = "400", description = "Invalid range or interval, or too many candles",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiError.class))}),
+            @ApiResponse(responseCode = "404", description = "No data available for requested crypto",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiError.class))}) })
+    @GetMapping(value = "/{cryptoName}/candles", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(value = HttpStatus.OK)
+    @Validated
+    public CompletableFuture<ResponseEntity<?>> getCandles(@PathVariable("cryptoName") final CryptoName cryptoName,
+                                        @RequestParam @Min(0) final long from,
+                                        @RequestParam @Min(0) final long until,
+                                        @RequestParam(defaultValue = "1h") final String interval,
+                                        final HttpServletRequest request) {
+        final Optional<String> shard = ShardRoutingInterceptor.owningShard(request);
+        if (shard.isPresent()) {
+            return shardClient.forward(shard.get(), request);
+        }
+        final Duration duration;
         try {
-            return ResponseEntity.ok(cryptoService.getCryptoInfo(cryptoName, monthsBefore));
-        } catch (DataNotFoundException e) {
-            return new ResponseEntity<>(new ApiError("crypto-not-found", e.getMessage()), HttpStatus.NOT_FOUND);
+            duration = DurationStyle.detectAndParse(interval);
+        } catch (IllegalArgumentException e) {
+            return completedBadRequest("Invalid interval: " + interval);
+        }
+        if (duration.toMillis() <= 0) {
+            return completedBadRequest("Interval must be positive: " + interval);
         }
+        if (from > until) {
+            return completedBadRequest("from must not be greater than until");
+        }
+        if ((until - from) / duration.toMillis() >= MAX_CANDLES) {
+            return completedBadRequest("Range covers more than " + MAX_CANDLES + " intervals of " + interval);
+        }
+        return async(() -> {
+            try {
+                return ResponseEntity.ok(cryptoService.getCandles(cryptoName, from, until, duration.toMillis()));
+            } catch (DataNotFoundException e) {
+                return new ResponseEntity<>(new ApiError("crypto-not-found", e.getMessage()), HttpStatus.NOT_FOUND);
+            }
+        });
+    }
+
+    @Operation(summary = "Return the min/max prices and normalized range of a window sliding over a time range")
+    @Parameters({
+            @Parameter(name = "cryptoName", description = "Crypto for which to get ranges", example = "ETH"),
+            @Parameter(name = "from", description = "Unix timestamp of the first sample (inclusive)", example = "1641013200000"),
+            @Parameter(name = "until", description = "Unix timestamp of the last sample (inclusive)", example = "1643605200000"),
+            @Parameter(name = "window", description = "Length of the window ending at each sample", example = "7d"),
+            @Parameter(name = "step", description = "Distance between samples, aligned to Unix Epoch", example = "1h")
+    })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ranges of samples whose window has data, sorted by time",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema( schema = @Schema(implementation = RollingRange.class))) }),
+            @ApiResponse(responseCode = "400", description = "Invalid range, window or step, or too many samples",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiError.class))}),
+            @ApiResponse(responseCode = "404", description = "No data available for requested crypto",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiError.class))}) })
+    @GetMapping(value = "/{cryptoName}/rolling", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(value = HttpStatus.OK)
+    @Validated
+    public CompletableFuture<ResponseEntity<?>> getRollingRanges(@PathVariable("cryptoName") final CryptoName cryptoName,
+                                                                 @RequestParam @Min(0) final long from,
+                                                                 @RequestParam @Min(0) final long until,
+                                                                 @RequestParam(defaultValue = "7d") final String window,
+                                                                 @RequestParam(defaultValue = "1h") final String step,
+                                                                 final HttpServletRequest request) {
+        final Optional<String> shard = ShardRoutingInterceptor.owningShard(request);
+        if (shard.isPresent()) {
+            return shardClient.forward(shard.get(), request);
+        }
+        final Duration windowDuration;
+        final Duration stepDuration;
+        try {
+            windowDuration = DurationStyle.detectAndParse(window);
+            stepDuration = DurationStyle.detectAndParse(step);
+        } catch (IllegalArgumentException e) {
+            return completedBadRequest("Invalid window or step: " + window + ", " + step);
+        }
+        if (windowDuration.isNegative() || stepDuration.toMillis() <= 0) {
+            return completedBadRequest("Window must not be negative and step must be positive: " + window + ", " + step);
+        }
+        if (from > until) {
+            return completedBadRequest("from must not be greater than until");
+        }
+        if ((until - from) / stepDuration.toMillis() >= MAX_SAMPLES) {
+            return completedBadRequest("Range covers more than " + MAX_SAMPLES + " steps of " + step);
+        }
+        return async(() -> {
+            try {
+                return ResponseEntity.ok(cryptoService.getRollingRanges(cryptoName, from, until,
+                        windowDuration.toMillis(), stepDuration.toMillis()));
+            } catch (DataNotFoundException e) {
+                return new ResponseEntity<>(new ApiError("crypto-not-found", e.getMessage()), HttpStatus.NOT_FOUND);
+            }
+        });
+    }
+
+    @Operation(summary = "Export price records of a crypto for a time range as NDJSON or CSV")
+    @Parameters({
+            @Parameter(name = "cryptoName", description = "Crypto for which to export prices", example = "ETH"),
+            @Parameter(name = "from", description = "Unix timestamp of the range start (inclusive)", example = "1641013200000"),
+            @Parameter(name = "until", description = "Unix timestamp of the range end (inclusive)", example = "1643605200000"),
+            @Parameter(name = "format", description = "ndjson or csv", example = "csv")
+    })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Records sorted by timestamp in ascending order",
+                    content = { @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE),
+                            @Content(mediaType = "text/csv") }),
+            @ApiResponse(responseCode = "400", description = "Unknown format",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiError.class))}),
+            @ApiResponse(responseCode = "404", description = "No data available for requested crypto",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiError.class))}) })
+    @GetMapping(value = "/{cryptoName}/export")
+    @Validated
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> exportRecords(
+            @PathVariable("cryptoName") final CryptoName cryptoName,
+            @RequestParam @Min(0) final long from,
+            @RequestParam @Min(0) final long until,
+            @RequestParam(defaultValue = "ndjson") final String format,
+            final HttpServletRequest request) {
+        final Optional<String> shard = ShardRoutingInterceptor.owningShard(request);
+        if (shard.isPresent()) {
+            return shardClient.forwardStreaming(shard.get(), request);
+        }
+        // the body type has to be declared for the body to be streamed, so errors are thrown to CommonAdvice
+        final RecordExportFormat exportFormat = RecordExportFormat.ofExtension(format);
+        if (exportFormat == null) {
+            throw new BadRequestException("Unknown format: " + format);
+        }
+        final PriceCursor cursor = cryptoService.getRecords(cryptoName, from, until);
+        // records are formatted into a small buffer, writes block while a slow client does not read
+        final StreamingResponseBody body = outputStream -> {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+            exportFormat.write(cursor, writer);
+            writer.flush();
+        };
+        return CompletableFuture.completedFuture(ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(cryptoName + "_" + from + "_" + until + "." + exportFormat.extension())
+                        .build().toString())
+                .body(body));
     }
 
     @Operation(summary = "Return the crypto with the highest normalized range for a specific day")
@@ -100,16 +372,139 @@ public class AppController {
     })
     @GetMapping(value = "/dayTop", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseStatus(value = HttpStatus.OK)
-    public ResponseEntity<?> getDayTopCrypto(
+    public CompletableFuture<ResponseEntity<?>> getDayTopCrypto(
             @RequestParam(value = "date",
-                    defaultValue = "#{T(java.time.LocalDate).now().format(T(java.time.format.DateTimeFormatter).ISO_LOCAL_DATE)}") final String date) {
+                    defaultValue = "#{T(java.time.LocalDate).now().format(T(java.time.format.DateTimeFormatter).ISO_LOCAL_DATE)}") final String date,
+            final HttpServletRequest request) {
         LocalDate localDate;
         try {
             localDate = LocalDate.ofInstant(Instant.ofEpochMilli(Long.parseLong(date)), ZoneId.systemDefault());
         } catch (IllegalArgumentException e) {
             localDate = LocalDate.parse(date);
         }
-        return cryptoService.getTopCrypto(localDate).<ResponseEntity<?>>map(ResponseEntity::ok)
-                .orElse(new ResponseEntity<>(new ApiError("data-not-found", "No data found for any crypto for given date: " + localDate.format(DateTimeFormatter.ISO_LOCAL_DATE)), HttpStatus.NOT_FOUND));
+        final LocalDate day = localDate;
+        final Optional<ResponseValidators.Validators> validators = shardClient.routesToShards(request)
+                ? Optional.empty()
+                : responseValidators.forPeriod(cryptoService.getCryptoNames(), day.isBefore(LocalDate.now()), "dayTop", day);
+        final CompletableFuture<List<CryptoStatsWithNormalizedRange>> shards = shardClient.scatter(request,
+                "/crypto/dayTop?date=" + day.format(DateTimeFormatter.ISO_LOCAL_DATE), RANKED_STATS_ENTRY);
+        return conditional(request, validators, () -> Stream.concat(cryptoService.getTopCrypto(day).stream(), shards.join().stream())
+                .max(comparing(CryptoStatsWithNormalizedRange::normalizedRange))
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(new ResponseEntity<>(new ApiError("data-not-found", "No data found for any crypto for given date: " + day.format(DateTimeFormatter.ISO_LOCAL_DATE)), HttpStatus.NOT_FOUND)));
+    }
+
+    @Operation(summary = "Return the crypto with the highest normalized range for each day of a date range")
+    @Parameters({
+            @Parameter(name = "from", description = "First day of the range (inclusive)", example = "2022-01-01"),
+            @Parameter(name = "until", description = "Last day of the range (inclusive)", example = "2022-01-31")
+    })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Top valued crypto of each day with data, sorted by date",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema( schema = @Schema(implementation = DailyTopCrypto.class))) }),
+            @ApiResponse(responseCode = "400", description = "Invalid range or range longer than " + MAX_DAYS + " days",
+                    content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiError.class)) }),
+    })
+    @GetMapping(value = "/dayTop/range", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(value = HttpStatus.OK)
+    public CompletableFuture<ResponseEntity<?>> getDayTopCryptos(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate until,
+            final HttpServletRequest request) {
+        if (from.isAfter(until)) {
+            return completedBadRequest("from must not be after until");
+        }
+        if (from.plusDays(MAX_DAYS).isBefore(until)) {
+            return completedBadRequest("Range covers more than " + MAX_DAYS + " days");
+        }
+        final Optional<ResponseValidators.Validators> validators = shardClient.routesToShards(request)
+                ? Optional.empty()
+                : responseValidators.forPeriod(cryptoService.getCryptoNames(), until.isBefore(LocalDate.now()),
+                        "dayTop/range", from, until);
+        final CompletableFuture<List<List<DailyTopCrypto>>> shards = shardClient.scatter(request,
+                "/crypto/dayTop/range?from=" + from + "&until=" + until, DAILY_TOP);
+        return conditional(request, validators, () -> {
+            final Map<LocalDate, DailyTopCrypto> topByDay = new TreeMap<>();
+            Stream.concat(cryptoService.getTopCryptos(from, until).stream(), shards.join().stream().flatMap(List::stream))
+                    .forEach(day -> topByDay.merge(day.date(), day, (left, right) ->
+                            left.top().normalizedRange().compareTo(right.top().normalizedRange()) >= 0 ? left : right));
+            return ResponseEntity.ok(new ArrayList<>(topByDay.values()));
+        });
+    }
+
+    /**
+     * Calculates the queries of symbols owned by this instance locally and sends the other queries to their shards,
+     * one request per shard.
+     * @return statistics in the order of the queries
+     */
+    private List<CryptoTimeRangeStats> getShardedCryptoInfos(final List<CryptoStatsQuery> queries) {
+        final Map<String, List<Integer>> queriesByShard = IntStream.range(0, queries.size()).boxed()
+                .collect(Collectors.groupingBy(index -> shardRouter.owner(queries.get(index).cryptoName().name()),
+                        LinkedHashMap::new, Collectors.toList()));
+        final Map<String, CompletableFuture<List<CryptoTimeRangeStats>>> remote = new HashMap<>();
+        queriesByShard.forEach((node, indices) -> {
+            if (!shardRouter.isSelf(node)) {
+                remote.put(node, shardClient.post(node, "/crypto/pricesInfo", indices.stream().map(queries::get).toList(), STATS));
+            }
+        });
+        final CryptoTimeRangeStats[] results = new CryptoTimeRangeStats[queries.size()];
+        queriesByShard.forEach((node, indices) -> {
+            final List<CryptoTimeRangeStats> stats = shardRouter.isSelf(node)
+                    ? cryptoService.getCryptoInfos(indices.stream().map(queries::get).toList())
+                    : ShardClient.await(remote.get(node));
+            for (int i = 0; i < indices.size(); i++) {
+                results[indices.get(i)] = stats.get(i);
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    private static ResponseEntity<?> badRequest(final String message) {
+        return new ResponseEntity<>(new ApiError("bad-request", message), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Runs a request on the bounded request pool, so the servlet thread is released while the request waits for data.
+     * Requests are rejected when the pool queue is full and answered with a timeout error when not done in time.
+     * <p>
+     * A request timing out is cancelled: it is dropped if still queued and its thread is interrupted if running. Only
+     * blocking waits (e.g. for a connection or a shard) stop on the interrupt, a calculation or a file read in progress
+     * runs to its end and its result is discarded.
+     */
+    private <T> CompletableFuture<T> async(final Supplier<T> request) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Future<?> task = requestExecutor.submit(() -> {
+            try {
+                result.complete(request.get());
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.orTimeout(requestTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((value, e) -> {
+            if (e instanceof TimeoutException) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Answers {@code 304 Not Modified} right away when the client already has the current response, without reading
+     * any data. Otherwise runs the request with {@link #async(Supplier)} and adds the validators to its response.
+     * @param validators validators of the response, empty if the response can not be validated
+     */
+    private CompletableFuture<ResponseEntity<?>> conditional(final HttpServletRequest request,
+                                                             final Optional<ResponseValidators.Validators> validators,
+                                                             final Supplier<ResponseEntity<?>> response) {
+        if (validators.isPresent() && validators.get().matches(request)) {
+            return CompletableFuture.completedFuture(validators.get().notModified());
+        }
+        return async(() -> validators.<ResponseEntity<?>>map(value -> value.apply(response.get())).orElseGet(response));
+    }
+
+    private static CompletableFuture<ResponseEntity<?>> completedBadRequest(final String message) {
+        return CompletableFuture.completedFuture(badRequest(message));
     }
 }
@@ -1,37 +1,106 @@
 package org.cryptodemo.controllers;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.cryptodemo.errors.ApiError;
+import org.cryptodemo.errors.BadRequestException;
+import org.cryptodemo.errors.DataNotFoundException;
+import org.cryptodemo.errors.ShardUnavailableException;
+import org.cryptodemo.errors.TooManyRequestsException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import javax.validation.ConstraintViolationException;
 import java.time.format.DateTimeParseException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestControllerAdvice
 public class CommonAdvice {
 
+    private final Counter internalServerErrors;
+    private final Counter badRequests;
+    private final Counter serviceUnavailable;
+    private final Counter tooManyRequests;
+
+    public CommonAdvice(final MeterRegistry meterRegistry) {
+        this.internalServerErrors = errorCounter(meterRegistry, "internal-server-error");
+        this.badRequests = errorCounter(meterRegistry, "bad-request");
+        this.serviceUnavailable = errorCounter(meterRegistry, "service-unavailable");
+        this.tooManyRequests = errorCounter(meterRegistry, "too-many-requests");
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ApiResponse(responseCode = "500", description = "Internal server error",
             content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                     schema = @Schema(implementation = ApiError.class)) })
     public ResponseEntity<ApiError> handleRuntimeException(final RuntimeException ex) {
+        internalServerErrors.increment();
         return ResponseEntity.internalServerError().body(new ApiError("internal-server-error", ex.getMessage()));
     }
 
-    @ExceptionHandler(value = {HttpClientErrorException.BadRequest.class, ConstraintViolationException.class, DateTimeParseException.class})
+    @ExceptionHandler(value = {HttpClientErrorException.BadRequest.class, ConstraintViolationException.class, DateTimeParseException.class,
+            HttpMessageNotReadableException.class, MethodArgumentTypeMismatchException.class, BadRequestException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ApiResponse(responseCode = "400", description = "Bad request",
             content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE) })
     public ResponseEntity<ApiError> handleBadRequestException(final Exception ex) {
+        badRequests.increment();
         return ResponseEntity.badRequest().body(new ApiError("bad-request", ex.getMessage()));
     }
+
+    @ExceptionHandler(DataNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ApiResponse(responseCode = "404", description = "No data available for requested crypto",
+            content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = ApiError.class)) })
+    public ResponseEntity<ApiError> handleDataNotFound(final DataNotFoundException ex) {
+        return new ResponseEntity<>(new ApiError("crypto-not-found", ex.getMessage()), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(value = {RejectedExecutionException.class, TimeoutException.class, AsyncRequestTimeoutException.class,
+            ShardUnavailableException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ApiResponse(responseCode = "503", description = "Too many requests in progress, request timed out or shard not available",
+            content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = ApiError.class)) })
+    public ResponseEntity<ApiError> handleServiceUnavailable(final Exception ex) {
+        serviceUnavailable.increment();
+        final String message = ex instanceof RejectedExecutionException ? "Too many requests in progress"
+                : ex instanceof ShardUnavailableException ? ex.getMessage()
+                : "Request timed out";
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ApiError("service-unavailable", message));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    @ApiResponse(responseCode = "429", description = "Too many requests from the client or the instance is overloaded",
+            content = { @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = ApiError.class)) })
+    public ResponseEntity<ApiError> handleTooManyRequests(final TooManyRequestsException ex) {
+        tooManyRequests.increment();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ApiError("too-many-requests", ex.getMessage()));
+    }
+
+    private static Counter errorCounter(final MeterRegistry meterRegistry, final String error) {
+        return Counter.builder("api.errors")
+                .description("Requests answered with an API error")
+                .tag("error", error)
+                .register(meterRegistry);
+    }
 }
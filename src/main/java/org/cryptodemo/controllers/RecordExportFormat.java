@@ -0,0 +1,85 @@
+package org.cryptodemo.controllers;
+
+import org.cryptodemo.dal.PriceCursor;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Formats of exported price records.
+ */
+enum RecordExportFormat {
+
+    /** One {@code {"timestamp":..,"symbol":..,"price":..}} object per line, as records are serialized elsewhere. */
+    NDJSON("ndjson", MediaType.APPLICATION_NDJSON) {
+        @Override
+        void writeHeader(final Writer writer) {
+        }
+
+        @Override
+        void writeRecord(final PriceCursor cursor, final Writer writer) throws IOException {
+            writer.append("{\"timestamp\":").append(Long.toString(cursor.timestamp()))
+                    .append(",\"symbol\":\"").append(cursor.symbol())
+                    .append("\",\"price\":").append(cursor.price().toPlainString())
+                    .append("}\n");
+        }
+    },
+
+    /** Lines of {@code timestamp,symbol,price} after a header line, the format of the price files. */
+    CSV("csv", new MediaType("text", "csv")) {
+        @Override
+        void writeHeader(final Writer writer) throws IOException {
+            writer.append("timestamp,symbol,price\n");
+        }
+
+        @Override
+        void writeRecord(final PriceCursor cursor, final Writer writer) throws IOException {
+            writer.append(Long.toString(cursor.timestamp())).append(',')
+                    .append(cursor.symbol()).append(',')
+                    .append(cursor.price().toPlainString()).append('\n');
+        }
+    };
+
+    private final String extension;
+    private final MediaType mediaType;
+
+    RecordExportFormat(final String extension, final MediaType mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * @return format with given file extension, {@code null} if there is none
+     */
+    static RecordExportFormat ofExtension(final String extension) {
+        for (RecordExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    String extension() {
+        return extension;
+    }
+
+    MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Writes the header and all remaining records of the cursor.
+     */
+    void write(final PriceCursor cursor, final Writer writer) throws IOException {
+        writeHeader(writer);
+        while (cursor.next()) {
+            writeRecord(cursor, writer);
+        }
+    }
+
+    abstract void writeHeader(Writer writer) throws IOException;
+
+    abstract void writeRecord(PriceCursor cursor, Writer writer) throws IOException;
+}
@@ -0,0 +1,153 @@
+package org.cryptodemo.controllers;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.services.CryptoService;
+import org.cryptodemo.services.CryptoStatsCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validators of responses calculated from price histories, so clients and caches can revalidate a response with
+ * {@code If-None-Match} or {@code If-Modified-Since} and get {@code 304 Not Modified} without the response being
+ * calculated again.
+ * <p>
+ * The entity tag hashes the data versions of the cryptos a response is calculated from together with the parameters
+ * of the response and an id of this instance, as data versions are only unique within a process. Versions are read
+ * before the data, so a tag is never newer than the response it is sent with. Responses of periods fully in the past
+ * may be cached for {@code crypto.http-cache.past-max-age-ms}, other responses are revalidated before reuse.
+ */
+@Component
+public class ResponseValidators {
+
+    private final CryptoService cryptoService;
+    private final CryptoStatsCache statsCache;
+    private final CacheControl pastCacheControl;
+    private final long instanceId = ThreadLocalRandom.current().nextLong();
+
+    /**
+     * Validators of one response.
+     * @param etag weak entity tag
+     * @param lastModified Unix epoch millis of the last change of the response, {@code 0} if unknown
+     * @param cacheControl caching allowed for the response
+     */
+    public record Validators(String etag, long lastModified, CacheControl cacheControl) {
+
+        /**
+         * Evaluates {@code If-None-Match}, or {@code If-Modified-Since} when the request has no entity tags.
+         * @return true if the client already has the current response
+         */
+        public boolean matches(final HttpServletRequest request) {
+            final String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+            if (ifNoneMatch != null) {
+                for (String tag : ifNoneMatch.split(",")) {
+                    final String trimmed = tag.trim();
+                    if (trimmed.equals("*") || opaqueTag(trimmed).equals(opaqueTag(etag))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (lastModified <= 0) {
+                return false;
+            }
+            final long ifModifiedSince;
+            try {
+                ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            // HTTP dates have a resolution of seconds
+            return ifModifiedSince >= 0 && lastModified / 1000 * 1000 <= ifModifiedSince;
+        }
+
+        public ResponseEntity<?> notModified() {
+            return headers(ResponseEntity.status(HttpStatus.NOT_MODIFIED)).build();
+        }
+
+        /**
+         * @return the response with the validators, responses other than {@code 200 OK} are returned as they are
+         */
+        public ResponseEntity<?> apply(final ResponseEntity<?> response) {
+            return response.getStatusCode() == HttpStatus.OK
+                    ? headers(ResponseEntity.ok()).body(response.getBody())
+                    : response;
+        }
+
+        private ResponseEntity.BodyBuilder headers(final ResponseEntity.BodyBuilder builder) {
+            builder.eTag(etag).cacheControl(cacheControl);
+            return lastModified > 0 ? builder.lastModified(lastModified) : builder;
+        }
+
+        private static String opaqueTag(final String tag) {
+            return tag.startsWith("W/") ? tag.substring(2) : tag;
+        }
+    }
+
+    public ResponseValidators(final CryptoService cryptoService,
+                              final CryptoStatsCache statsCache,
+                              @Value("${crypto.http-cache.past-max-age-ms}") final long pastMaxAgeMillis) {
+        this.cryptoService = cryptoService;
+        this.statsCache = statsCache;
+        this.pastCacheControl = CacheControl.maxAge(pastMaxAgeMillis, TimeUnit.MILLISECONDS).cachePublic();
+    }
+
+    /**
+     * Validators of a response for a window relative to now, which moves by the window granularity of
+     * {@link CryptoStatsCache}, so the response also changes whenever the window moves.
+     * @param cryptoNames cryptos the response is calculated from
+     * @param parameters parameters of the response which select the window
+     * @return validators, empty if the history of one of the cryptos was not read yet
+     */
+    public Optional<Validators> forSlidingWindow(final Collection<CryptoName> cryptoNames, final Object... parameters) {
+        final long windowMoved = statsCache.align(System.currentTimeMillis());
+        return validators(cryptoNames, windowMoved, CacheControl.noCache(), parameters);
+    }
+
+    /**
+     * Validators of a response for a fixed period.
+     * @param cryptoNames cryptos the response is calculated from
+     * @param past true if the period ended before today, so only late rows may still change the response
+     * @param parameters parameters of the response which select the period
+     * @return validators, empty if the history of one of the cryptos was not read yet
+     */
+    public Optional<Validators> forPeriod(final Collection<CryptoName> cryptoNames, final boolean past,
+                                          final Object... parameters) {
+        return validators(cryptoNames, 0, past ? pastCacheControl : CacheControl.noCache(), parameters);
+    }
+
+    /**
+     * @param windowMoved when the window of the response last moved, {@code 0} for fixed periods
+     */
+    private Optional<Validators> validators(final Collection<CryptoName> cryptoNames, final long windowMoved,
+                                            final CacheControl cacheControl, final Object... parameters) {
+        final Hasher hasher = Hashing.murmur3_128().newHasher()
+                .putLong(instanceId)
+                .putLong(windowMoved);
+        for (Object parameter : parameters) {
+            hasher.putString(String.valueOf(parameter), StandardCharsets.UTF_8).putChar('\0');
+        }
+        long lastModified = windowMoved;
+        for (CryptoName cryptoName : cryptoNames) {
+            final long dataVersion = cryptoService.getDataVersion(cryptoName);
+            if (dataVersion == 0) {
+                return Optional.empty();
+            }
+            hasher.putString(cryptoName.name(), StandardCharsets.UTF_8).putLong(dataVersion);
+            lastModified = Math.max(lastModified, cryptoService.getDataModified(cryptoName));
+        }
+        return Optional.of(new Validators("W/\"" + hasher.hash() + "\"", lastModified, cacheControl));
+    }
+}
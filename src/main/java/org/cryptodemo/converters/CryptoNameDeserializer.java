@@ -0,0 +1,29 @@
+package org.cryptodemo.converters;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import org.cryptodemo.dal.SymbolRegistry;
+import org.cryptodemo.data.CryptoName;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+/**
+ * Resolves symbols of request bodies the same way as {@link StringToCryptoNameConverter} does for request
+ * parameters.
+ */
+@JsonComponent
+public class CryptoNameDeserializer extends JsonDeserializer<CryptoName> {
+
+    private final StringToCryptoNameConverter converter;
+
+    public CryptoNameDeserializer(final SymbolRegistry symbolRegistry) {
+        this.converter = new StringToCryptoNameConverter(symbolRegistry);
+    }
+
+    @Override
+    public CryptoName deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+        return converter.convert(parser.getValueAsString());
+    }
+}
@@ -1,12 +1,22 @@
 package org.cryptodemo.converters;
 
+import org.cryptodemo.dal.SymbolRegistry;
 import org.cryptodemo.data.CryptoName;
 import org.springframework.core.convert.converter.Converter;
 
 public class StringToCryptoNameConverter implements Converter<String, CryptoName> {
 
+    private final SymbolRegistry symbolRegistry;
+
+    public StringToCryptoNameConverter(final SymbolRegistry symbolRegistry) {
+        this.symbolRegistry = symbolRegistry;
+    }
+
+    /**
+     * @return registered symbol, or an unknown one answered as not found by the services
+     */
     @Override
     public CryptoName convert(String source) {
-        return CryptoName.valueOf(source.toUpperCase());
+        return symbolRegistry.find(source).orElseGet(() -> CryptoName.unknown(source));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.Price;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-width binary price file of a single crypto. The file starts with a 16 bytes header
+ * ({@code int} magic, {@code int} version, {@code int} price scale, {@code int} reserved) followed by 16 bytes rows
+ * ({@code long} timestamp, {@code long} unscaled price) sorted by timestamp in ascending order. All values are
+ * big-endian. A price is {@code unscaled * 10^-scale}, the scale is common for the whole file.
+ */
+public final class BinaryPriceFile {
+
+    public static final String EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x43525058; // "CRPX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ROW_SIZE = 16;
+
+    private BinaryPriceFile() {
+    }
+
+    /**
+     * Writes rows into a binary price file, rows must be already sorted by timestamp.
+     * @param file to write to, replaced if it exists
+     * @param timestamps timestamp column, only the first {@code size} values are used
+     * @param unscaledPrices price column as unscaled values of {@code scale}
+     * @param scale number of decimal places of all prices
+     * @param size number of rows
+     * @throws IOException on write error
+     */
+    public static void write(final Path file, final long[] timestamps, final long[] unscaledPrices,
+                             final int scale, final int size) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(scale);
+            output.writeInt(0);
+            for (int i = 0; i < size; i++) {
+                output.writeLong(timestamps[i]);
+                output.writeLong(unscaledPrices[i]);
+            }
+        }
+    }
+
+    /**
+     * Writes rows into a binary price file, rows must be already sorted by timestamp.
+     * @param file to write to, replaced if it exists
+     * @param rows to write
+     * @throws IOException on write error
+     */
+    public static void write(final Path file, final PriceRows rows) throws IOException {
+        write(file, rows.timestamps(), rows.unscaledPrices(), rows.scale(), rows.size());
+    }
+
+    /**
+     * Maps a binary price file into memory. Rows are read directly from the mapping, the file content is not copied
+     * into heap.
+     * @param file to map, must be smaller than 2GB
+     * @return columns backed by the mapped file
+     * @throws IOException on read error or when the file is not a valid binary price file
+     */
+    static PriceColumns map(final Path file) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to be mapped: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary price file: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported binary price file version " + buffer.getInt(4) + ": " + file);
+        }
+        if ((buffer.limit() - HEADER_SIZE) % ROW_SIZE != 0) {
+            throw new IOException("Truncated binary price file: " + file);
+        }
+        final int scale = buffer.getInt(8);
+        if (scale < 0 || scale > Price.MAX_SCALE) {
+            throw new IOException("Not a binary price file, unsupported price scale " + scale + ": " + file);
+        }
+        final MappedPriceColumns columns = new MappedPriceColumns(buffer, scale);
+        for (int i = 1; i < columns.size(); i++) {
+            if (columns.timestamp(i - 1) > columns.timestamp(i)) {
+                throw new IOException("Rows are not sorted by timestamp: " + file);
+            }
+        }
+        return columns;
+    }
+
+    private static final class MappedPriceColumns implements PriceColumns {
+
+        private final ByteBuffer buffer;
+        private final int scale;
+        private final int size;
+
+        private MappedPriceColumns(final ByteBuffer buffer, final int scale) {
+            this.buffer = buffer;
+            this.scale = scale;
+            this.size = (buffer.limit() - HEADER_SIZE) / ROW_SIZE;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long timestamp(final int index) {
+            return buffer.getLong(HEADER_SIZE + index * ROW_SIZE);
+        }
+
+        @Override
+        public long unscaledPrice(final int index) {
+            return buffer.getLong(HEADER_SIZE + index * ROW_SIZE + Long.BYTES);
+        }
+
+        @Override
+        public int scale() {
+            return scale;
+        }
+    }
+}
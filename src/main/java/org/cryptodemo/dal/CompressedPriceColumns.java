@@ -0,0 +1,232 @@
+package org.cryptodemo.dal;
+
+import java.util.Arrays;
+
+/**
+ * Price columns kept as {@link PriceChunk} blocks of {@link PriceChunk#SIZE} rows. Rows are read by decoding their
+ * chunk into a small per-thread cache, so sequential reads decode each chunk once. Timestamp searches go over the
+ * chunk headers first and decode a single chunk, the lowest and the highest price of whole chunks come from their
+ * headers, so the columns serve as their own {@link MinMaxIndex}.
+ * <p>
+ * The array of full chunks is shared by appended instances like the arrays of {@link HeapPriceColumns}: chunks are
+ * only added past the full chunks of existing instances. The last partial chunk is kept by each instance and encoded
+ * again with the appended rows.
+ */
+final class CompressedPriceColumns implements PriceColumns, MinMaxIndex {
+
+    private static final int DECODED_CHUNKS = 2;
+    /** Recently decoded chunks of the current thread, the most recently used first. */
+    private static final ThreadLocal<DecodedChunk[]> DECODED = ThreadLocal.withInitial(() -> {
+        final DecodedChunk[] decoded = new DecodedChunk[DECODED_CHUNKS];
+        Arrays.setAll(decoded, i -> new DecodedChunk());
+        return decoded;
+    });
+
+    private final PriceChunk[] fullChunks;
+    private final int fullChunkCount;
+    /** Chunk of the rows after the full chunks, {@code null} when there are none. */
+    private final PriceChunk partialChunk;
+    private final int scale;
+    private final int size;
+
+    private CompressedPriceColumns(final PriceChunk[] fullChunks, final int fullChunkCount,
+                                   final PriceChunk partialChunk, final int scale) {
+        this.fullChunks = fullChunks;
+        this.fullChunkCount = fullChunkCount;
+        this.partialChunk = partialChunk;
+        this.scale = scale;
+        this.size = fullChunkCount * PriceChunk.SIZE + (partialChunk == null ? 0 : partialChunk.count());
+    }
+
+    /**
+     * @param rows rows sorted by timestamp
+     * @return columns with the rows
+     */
+    static CompressedPriceColumns of(final PriceRows rows) {
+        return new CompressedPriceColumns(new PriceChunk[0], 0, null, rows.scale()).append(rows);
+    }
+
+    /**
+     * Appends rows after the last row of these columns. Must be called on the latest instance only, appending to
+     * an instance which was already appended to would overwrite chunks of the newer instance.
+     * @param rows appended rows, must have the scale of these columns
+     * @return columns with the appended rows
+     */
+    CompressedPriceColumns append(final PriceRows rows) {
+        final long[] timestamps = new long[PriceChunk.SIZE];
+        final long[] prices = new long[PriceChunk.SIZE];
+        int buffered = 0;
+        if (partialChunk != null) {
+            partialChunk.decode(timestamps, prices);
+            buffered = partialChunk.count();
+        }
+        final int fullCount = (size + rows.size()) / PriceChunk.SIZE;
+        PriceChunk[] chunks = fullChunks;
+        if (fullCount > chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(fullCount, chunks.length * 2));
+        }
+        int chunkCount = fullChunkCount;
+        for (int i = 0; i < rows.size(); i++) {
+            timestamps[buffered] = rows.timestamp(i);
+            prices[buffered] = rows.unscaledPrice(i);
+            if (++buffered == PriceChunk.SIZE) {
+                chunks[chunkCount++] = PriceChunk.encode(timestamps, prices, buffered);
+                buffered = 0;
+            }
+        }
+        final PriceChunk partial = buffered == 0 ? null : PriceChunk.encode(timestamps, prices, buffered);
+        return new CompressedPriceColumns(chunks, chunkCount, partial, scale);
+    }
+
+    /**
+     * @return size of the encoded rows in bytes, without chunk headers
+     */
+    long encodedBytes() {
+        long bytes = partialChunk == null ? 0 : partialChunk.encodedBytes();
+        for (int i = 0; i < fullChunkCount; i++) {
+            bytes += fullChunks[i].encodedBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long timestamp(final int index) {
+        return decoded(chunk(index / PriceChunk.SIZE)).timestamps[index % PriceChunk.SIZE];
+    }
+
+    @Override
+    public long unscaledPrice(final int index) {
+        return decoded(chunk(index / PriceChunk.SIZE)).prices[index % PriceChunk.SIZE];
+    }
+
+    @Override
+    public int scale() {
+        return scale;
+    }
+
+    @Override
+    public int indexFrom(final long fromTimestamp) {
+        int low = 0, high = chunkCount();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (chunk(mid).lastTimestamp() < fromTimestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == chunkCount()) {
+            return size;
+        }
+        final PriceChunk chunk = chunk(low);
+        final long[] timestamps = decoded(chunk).timestamps;
+        int offset = 0;
+        while (timestamps[offset] < fromTimestamp) {
+            offset++;
+        }
+        return low * PriceChunk.SIZE + offset;
+    }
+
+    @Override
+    public int indexUntil(final long untilTimestamp) {
+        int low = 0, high = chunkCount();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (chunk(mid).lastTimestamp() <= untilTimestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == chunkCount()) {
+            return size;
+        }
+        final PriceChunk chunk = chunk(low);
+        final long[] timestamps = decoded(chunk).timestamps;
+        int offset = 0;
+        while (timestamps[offset] <= untilTimestamp) {
+            offset++;
+        }
+        return low * PriceChunk.SIZE + offset;
+    }
+
+    @Override
+    public int minIndex(final int from, final int until) {
+        return extremeIndex(from, until, false);
+    }
+
+    @Override
+    public int maxIndex(final int from, final int until) {
+        return extremeIndex(from, until, true);
+    }
+
+    /**
+     * Takes the extreme of chunks fully covered by the range from their headers and scans the decoded rows of the
+     * chunks on both edges.
+     */
+    private int extremeIndex(final int from, final int until, final boolean max) {
+        int result = from;
+        long resultPrice = unscaledPrice(from);
+        for (int chunkIndex = from / PriceChunk.SIZE; chunkIndex * PriceChunk.SIZE < until; chunkIndex++) {
+            final PriceChunk chunk = chunk(chunkIndex);
+            final int first = chunkIndex * PriceChunk.SIZE;
+            if (from <= first && first + chunk.count() <= until) {
+                final long price = max ? chunk.maxPrice() : chunk.minPrice();
+                if (max ? price > resultPrice : price < resultPrice) {
+                    result = first + (max ? chunk.maxOffset() : chunk.minOffset());
+                    resultPrice = price;
+                }
+                continue;
+            }
+            final long[] prices = decoded(chunk).prices;
+            for (int i = Math.max(from, first); i < Math.min(until, first + chunk.count()); i++) {
+                final long price = prices[i - first];
+                if (max ? price > resultPrice : price < resultPrice) {
+                    result = i;
+                    resultPrice = price;
+                }
+            }
+        }
+        return result;
+    }
+
+    private int chunkCount() {
+        return partialChunk == null ? fullChunkCount : fullChunkCount + 1;
+    }
+
+    private PriceChunk chunk(final int chunkIndex) {
+        return chunkIndex < fullChunkCount ? fullChunks[chunkIndex] : partialChunk;
+    }
+
+    /**
+     * @return rows of the chunk from the cache of the current thread, decoded in place of the least recently used
+     * chunk if missing
+     */
+    private static DecodedChunk decoded(final PriceChunk chunk) {
+        final DecodedChunk[] decoded = DECODED.get();
+        int slot = 0;
+        while (slot < DECODED_CHUNKS - 1 && decoded[slot].chunk != chunk) {
+            slot++;
+        }
+        final DecodedChunk result = decoded[slot];
+        if (result.chunk != chunk) {
+            chunk.decode(result.timestamps, result.prices);
+            result.chunk = chunk;
+        }
+        System.arraycopy(decoded, 0, decoded, 1, slot);
+        decoded[0] = result;
+        return result;
+    }
+
+    private static final class DecodedChunk {
+
+        private final long[] timestamps = new long[PriceChunk.SIZE];
+        private final long[] prices = new long[PriceChunk.SIZE];
+        private PriceChunk chunk;
+    }
+}
@@ -1,23 +1,90 @@
 package org.cryptodemo.dal;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.Price;
 import org.cryptodemo.data.entity.CryptoRecord;
-import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-import java.sql.*;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Properties;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
-public class CryptoRepository implements InitializingBean {
+public class CryptoRepository {
 
-    @Value("${datasource.url}")
-    private String datasourceUrl;
-    private Connection connection; // todo: replace with managed pool
+    private static final int READ_CHUNK_SIZE = 1 << 20;
+    private static final String URL_PREFIX = "jdbc:relique:csv:";
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final String ZIP_PREFIX = "zip:";
+    private static final String CSV_EXTENSION = ".csv";
+    private static final String FILE_SUFFIX = "_values";
+
+    private final CsvConnectionPool connectionPool;
+    private final ParallelCsvReader csvReader;
+    private final MeterRegistry meterRegistry;
+    private final String datasourceUrl;
+    /** Directory with binary price files, CSV files are read through csvjdbc when empty. */
+    private final String binaryPath;
+    /** Representation of series read from CSV files. */
+    private final PriceStorage storage;
+    /** Local directory with CSV files, {@code null} when the files can not be followed for appended rows. */
+    private final Path csvDirectory;
+    /** Local zip archive with CSV files, {@code null} when the data source is not an archive. */
+    private final Path csvArchive;
+    /** Whether local CSV files and archives are read by {@link ParallelCsvReader} rather than csvjdbc. */
+    private final boolean parallelRead;
+    private final Map<CryptoName, PriceSeries> seriesCache = new ConcurrentHashMap<>();
+    /** Version of each series in {@link #seriesCache}, unique across all cryptos and reloads. */
+    private final Map<CryptoName, Long> dataVersions = new ConcurrentHashMap<>();
+    private final Map<CryptoName, Long> dataModified = new ConcurrentHashMap<>();
+    private final AtomicLong versionSequence = new AtomicLong();
+    /** Length of each CSV file already read into {@link #seriesCache}, guarded by the crypto load lock. */
+    private final Map<CryptoName, Long> readOffsets = new ConcurrentHashMap<>();
+    private final Map<CryptoName, Object> loadLocks = new ConcurrentHashMap<>();
+    private final Map<CryptoName, SymbolMeters> meters = new ConcurrentHashMap<>();
+
+    public CryptoRepository(final CsvConnectionPool connectionPool,
+                            final ParallelCsvReader csvReader,
+                            final MeterRegistry meterRegistry,
+                            @Value("${datasource.url}") final String datasourceUrl,
+                            @Value("${datasource.binary-path:}") final String binaryPath,
+                            @Value("${datasource.storage}") final PriceStorage storage,
+                            @Value("${datasource.parallel-read.enabled}") final boolean parallelRead) {
+        this.connectionPool = connectionPool;
+        this.csvReader = csvReader;
+        this.meterRegistry = meterRegistry;
+        this.datasourceUrl = datasourceUrl;
+        this.binaryPath = binaryPath;
+        this.storage = storage;
+        this.parallelRead = parallelRead;
+        this.csvDirectory = binaryPath.isEmpty() ? resolveCsvDirectory(datasourceUrl) : null;
+        this.csvArchive = binaryPath.isEmpty() ? resolveCsvArchive(datasourceUrl) : null;
+    }
 
     /**
      * Fetch data for given crypto from DB (local file).
@@ -28,27 +95,394 @@ public class CryptoRepository implements InitializingBean {
      * @throws SQLException on DB error
      */
     public List<CryptoRecord> getCryptoRecordsTimestamps(final CryptoName cryptoName, final long fromTimestamp, final long untilTimestamp) throws SQLException {
-        final String tableName = cryptoName.name() + "_values";
-        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM " + tableName+ " t WHERE t.timestamp BETWEEN ? AND ? ORDER BY t.timestamp DESC")) {
-            statement.setLong(1, fromTimestamp);
-            statement.setLong(2, untilTimestamp);
-            final ResultSet results = statement.executeQuery();
-            final List<CryptoRecord> cryptoRecords = new ArrayList<>();
+        final long start = System.nanoTime();
+        try {
+            return getPriceSeries(cryptoName).getRecordsDescending(fromTimestamp, untilTimestamp);
+        } finally {
+            meters(cryptoName).query.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Opens a cursor over records of given crypto, records are read from the in-memory price history one by one, so
+     * memory use does not depend on the size of the time range.
+     * @param cryptoName to read records of
+     * @param fromTimestamp specifies the earliest point in time we are interested in
+     * @param untilTimestamp specifies the latest point in time we are interested in
+     * @return cursor in ascending timestamp order
+     * @throws SQLException on DB error
+     */
+    public PriceCursor getCryptoRecordsCursor(final CryptoName cryptoName, final long fromTimestamp, final long untilTimestamp) throws SQLException {
+        return getPriceSeries(cryptoName).cursor(fromTimestamp, untilTimestamp);
+    }
+
+    /**
+     * Returns whole price history for given crypto. The file is read from DB only on first access, subsequent
+     * calls are served from memory, in the representation configured by {@code datasource.storage}. Local CSV files
+     * and zip archives are parsed in parallel unless {@code datasource.parallel-read.enabled} is off. When
+     * {@code datasource.binary-path} is set, the binary price file is memory mapped instead.
+     * @param cryptoName to get price history for
+     * @return price history sorted by timestamp
+     * @throws SQLException on DB error
+     */
+    public PriceSeries getPriceSeries(final CryptoName cryptoName) throws SQLException {
+        final PriceSeries series = seriesCache.get(cryptoName);
+        return series != null ? series : loadPriceSeries(cryptoName);
+    }
+
+    /**
+     * Returns the version of the price history of given crypto. The version changes whenever rows are added or the
+     * history is read again, so results calculated from the history can be cached with the version as a part of
+     * the key.
+     * @param cryptoName to get the data version for
+     * @return current data version, {@code 0} when the history was not read yet
+     */
+    public long getDataVersion(final CryptoName cryptoName) {
+        return dataVersions.getOrDefault(cryptoName, 0L);
+    }
+
+    /**
+     * @param cryptoName to get the modification time for
+     * @return Unix epoch millis when the current data version was published, {@code 0} when the history was not read yet
+     */
+    public long getDataModified(final CryptoName cryptoName) {
+        return dataModified.getOrDefault(cryptoName, 0L);
+    }
+
+    /**
+     * Lists symbols which have a price file in the data source: files of the binary or the CSV directory, CSV
+     * resources on the classpath, or tables reported by csvjdbc for other sources such as archives.
+     * @return symbol names in no particular order
+     * @throws IOException on directory or classpath read error
+     * @throws SQLException on DB error
+     */
+    public Set<String> findSymbols() throws IOException, SQLException {
+        if (!binaryPath.isEmpty()) {
+            return symbolsOfDirectory(Path.of(binaryPath), BinaryPriceFile.EXTENSION);
+        }
+        if (csvDirectory != null) {
+            return symbolsOfDirectory(csvDirectory, CSV_EXTENSION);
+        }
+        final Set<String> symbols = new HashSet<>();
+        final String location = location(datasourceUrl);
+        if (location != null && location.startsWith(CLASSPATH_PREFIX)) {
+            final Resource[] resources = new PathMatchingResourcePatternResolver().getResources(
+                    "classpath*:" + location.substring(CLASSPATH_PREFIX.length()) + "/*" + FILE_SUFFIX + CSV_EXTENSION);
+            for (Resource resource : resources) {
+                symbolOf(resource.getFilename(), CSV_EXTENSION).ifPresent(symbols::add);
+            }
+            return symbols;
+        }
+        try (CsvConnectionPool.PooledConnection connection = connectionPool.acquire();
+             ResultSet tables = connection.getMetaData().getTables(null, null, "%", null)) {
+            while (tables.next()) {
+                symbolOf(tables.getString("TABLE_NAME"), "").ifPresent(symbols::add);
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * @return local directory with CSV files which can be followed for appended rows
+     */
+    public Optional<Path> getCsvDirectory() {
+        return Optional.ofNullable(csvDirectory);
+    }
+
+    /**
+     * Reads rows appended to the CSV file of given crypto since the file was last read and adds them to the price
+     * history in memory. Only complete lines are read, lines that can not be parsed are ignored. Cryptos which were
+     * not accessed yet are skipped, their file is read entirely on first access.
+     * @param cryptoName to read appended rows for
+     * @return number of rows added
+     * @throws IOException on file read error
+     * @throws SQLException on DB error when the file was truncated and is read again entirely
+     */
+    public int readAppendedRows(final CryptoName cryptoName) throws IOException, SQLException {
+        if (csvDirectory == null) {
+            return 0;
+        }
+        synchronized (loadLocks.computeIfAbsent(cryptoName, name -> new Object())) {
+            final PriceSeries series = seriesCache.get(cryptoName);
+            final Long offset = readOffsets.get(cryptoName);
+            if (series == null || offset == null) {
+                return 0;
+            }
+            final Path file = csvFile(cryptoName);
+            if (fileSize(file) < offset) {
+                seriesCache.remove(cryptoName);
+                return Math.max(loadPriceSeries(cryptoName).size() - series.size(), 0);
+            }
+            long position = offset;
+            final PriceRows rows = new PriceRows();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                final ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_SIZE);
+                while (channel.read(buffer.clear(), position) > 0) {
+                    int lineEnd = buffer.position() - 1;
+                    while (lineEnd >= 0 && buffer.get(lineEnd) != '\n') {
+                        lineEnd--;
+                    }
+                    if (lineEnd < 0) {
+                        break; // incomplete line, the rest is read once it is terminated
+                    }
+                    final String lines = new String(buffer.array(), 0, lineEnd, StandardCharsets.UTF_8);
+                    for (String line : lines.split("\n")) {
+                        final CryptoRecord record = PriceLineParser.parse(line);
+                        if (record != null) {
+                            rows.add(record.timestamp(), record.price());
+                        }
+                    }
+                    position += lineEnd + 1;
+                }
+            }
+            final int added = rows.size();
+            publish(cryptoName, series.append(rows));
+            meters(cryptoName).countRead(added, position - offset);
+            readOffsets.put(cryptoName, position);
+            return added;
+        }
+    }
+
+    private PriceSeries loadPriceSeries(final CryptoName cryptoName) throws SQLException {
+        synchronized (loadLocks.computeIfAbsent(cryptoName, name -> new Object())) {
+            PriceSeries series = seriesCache.get(cryptoName);
+            if (series == null) {
+                final long start = System.nanoTime();
+                long bytes = 0;
+                if (!binaryPath.isEmpty()) {
+                    series = mapPriceSeries(cryptoName);
+                    bytes = fileSize(binaryFile(cryptoName));
+                } else if (csvDirectory == null) {
+                    series = readPriceSeries(cryptoName);
+                } else {
+                    // read up to the last line terminator, a last line without one may still be written and is read
+                    // with the appended rows once complete; read again when lines were appended while reading, so
+                    // the offset matches the rows read
+                    final Path file = csvFile(cryptoName);
+                    long length;
+                    do {
+                        length = completeLinesLength(file);
+                        series = PriceSeries.of(cryptoName.name(), readCsvRows(cryptoName, length), storage);
+                    } while (length != completeLinesLength(file));
+                    readOffsets.put(cryptoName, length);
+                    bytes = length;
+                }
+                publish(cryptoName, series);
+                final SymbolMeters symbolMeters = meters(cryptoName);
+                symbolMeters.load.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                symbolMeters.countRead(series.size(), bytes);
+            }
+            return series;
+        }
+    }
+
+    private void publish(final CryptoName cryptoName, final PriceSeries series) {
+        if (seriesCache.put(cryptoName, series) != series) {
+            dataModified.put(cryptoName, System.currentTimeMillis());
+            dataVersions.put(cryptoName, versionSequence.incrementAndGet());
+        }
+    }
+
+    private SymbolMeters meters(final CryptoName cryptoName) {
+        return meters.computeIfAbsent(cryptoName, name -> new SymbolMeters(name, meterRegistry));
+    }
+
+    private Path csvFile(final CryptoName cryptoName) {
+        return csvDirectory.resolve(cryptoName.name() + FILE_SUFFIX + CSV_EXTENSION);
+    }
+
+    private Path binaryFile(final CryptoName cryptoName) {
+        return Path.of(binaryPath, cryptoName.name() + FILE_SUFFIX + BinaryPriceFile.EXTENSION);
+    }
+
+    private static Set<String> symbolsOfDirectory(final Path directory, final String extension) throws IOException {
+        final Set<String> symbols = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX + extension)) {
+            for (Path file : files) {
+                symbolOf(file.getFileName().toString(), extension).ifPresent(symbols::add);
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * @return symbol of a price file or table name, e.g. {@code BTC} of {@code BTC_values.csv}
+     */
+    private static Optional<String> symbolOf(final String name, final String extension) {
+        final String suffix = FILE_SUFFIX + extension;
+        if (name == null || !name.endsWith(suffix) || name.length() == suffix.length()) {
+            return Optional.empty();
+        }
+        return Optional.of(name.substring(0, name.length() - suffix.length()));
+    }
+
+    /**
+     * @return number of bytes of a file up to and including its last line terminator, {@code -1} if it can not be read
+     */
+    private static long completeLinesLength(final Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_SIZE);
+            long end = channel.size();
+            while (end > 0) {
+                final long start = Math.max(end - READ_CHUNK_SIZE, 0);
+                buffer.clear().limit((int) (end - start));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, start + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                for (int i = buffer.position() - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        return start + i + 1;
+                    }
+                }
+                end = start;
+            }
+            return 0;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long fileSize(final Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return local directory the csvjdbc URL points to, {@code null} for archives and resources packed in a jar
+     */
+    private static Path resolveCsvDirectory(final String datasourceUrl) {
+        final String location = location(datasourceUrl);
+        if (location == null) {
+            return null;
+        }
+        try {
+            final Path directory;
+            if (location.startsWith(CLASSPATH_PREFIX)) {
+                final URL resource = CryptoRepository.class.getClassLoader().getResource(location.substring(CLASSPATH_PREFIX.length()));
+                if (resource == null || !"file".equals(resource.getProtocol())) {
+                    return null;
+                }
+                directory = Path.of(resource.toURI());
+            } else {
+                directory = Path.of(location);
+            }
+            return Files.isDirectory(directory) ? directory : null;
+        } catch (URISyntaxException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return local zip archive the csvjdbc URL points to, {@code null} for other locations
+     */
+    private static Path resolveCsvArchive(final String datasourceUrl) {
+        final String location = location(datasourceUrl);
+        if (location == null || !location.startsWith(ZIP_PREFIX)) {
+            return null;
+        }
+        try {
+            final Path archive = Path.of(location.substring(ZIP_PREFIX.length()));
+            return Files.isRegularFile(archive) ? archive : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return location part of a csvjdbc URL without parameters, {@code null} for other URLs
+     */
+    private static String location(final String datasourceUrl) {
+        if (!datasourceUrl.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        final String location = datasourceUrl.substring(URL_PREFIX.length());
+        return location.indexOf('?') >= 0 ? location.substring(0, location.indexOf('?')) : location;
+    }
+
+    private PriceSeries mapPriceSeries(final CryptoName cryptoName) throws SQLException {
+        final Path file = binaryFile(cryptoName);
+        if (!Files.isRegularFile(file)) {
+            throw new SQLException("File not found: " + file);
+        }
+        try {
+            return PriceSeries.of(cryptoName.name(), BinaryPriceFile.map(file));
+        } catch (IOException e) {
+            throw new SQLException("Error reading " + file, e);
+        }
+    }
+
+    private PriceSeries readPriceSeries(final CryptoName cryptoName) throws SQLException {
+        if (parallelRead && csvArchive != null) {
+            return PriceSeries.of(cryptoName.name(), readCsvRows(cryptoName, 0), storage);
+        }
+        final String tableName = cryptoName.name() + FILE_SUFFIX;
+        try (CsvConnectionPool.PooledConnection connection = connectionPool.acquire();
+             ResultSet results = connection.prepareStatement("SELECT * FROM " + tableName).executeQuery()) {
+            final PriceRows rows = new PriceRows();
             while (results.next()) {
-                cryptoRecords.add(new CryptoRecord(results.getLong(1), results.getString(2), new BigDecimal(results.getString(3))));
+                rows.add(results.getLong(1), Price.parse(results.getString(3)));
+            }
+            return PriceSeries.of(cryptoName.name(), rows, storage);
+        }
+    }
+
+    /**
+     * @param length number of bytes to read of a local file, the whole entry is read from an archive
+     */
+    private PriceRows readCsvRows(final CryptoName cryptoName, final long length) throws SQLException {
+        final String fileName = cryptoName.name() + FILE_SUFFIX + CSV_EXTENSION;
+        try {
+            if (csvDirectory != null) {
+                return csvReader.read(csvFile(cryptoName), length);
             }
-            return cryptoRecords;
+            return csvReader.readZipEntry(csvArchive, fileName);
+        } catch (NoSuchFileException e) {
+            throw new SQLException("File not found: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new SQLException("Error reading " + fileName, e);
         }
     }
 
-    @Override
-    public void afterPropertiesSet() throws Exception {
-        final Properties props = new Properties();
-        // Define column names and column data types here.
-        props.put("suppressHeaders", "false");
-        props.put("headerline", "timestamp,symbol,price");
-        props.put("columnTypes", "Long,String,String");
-        props.put("ignoreNonParseableLines", "true");
-        connection = DriverManager.getConnection(datasourceUrl, props);
+    /**
+     * Meters of a single crypto. Bytes are counted for local files only, CSV files read by csvjdbc from a jar are
+     * counted by rows.
+     */
+    private static final class SymbolMeters {
+
+        private final Counter rowsRead;
+        private final Counter bytesRead;
+        private final Timer query;
+        private final Timer load;
+
+        private SymbolMeters(final CryptoName cryptoName, final MeterRegistry registry) {
+            final String symbol = cryptoName.name();
+            rowsRead = Counter.builder("crypto.repository.rows.read")
+                    .description("Price rows read from price files")
+                    .tag("symbol", symbol)
+                    .register(registry);
+            bytesRead = Counter.builder("crypto.repository.bytes.read")
+                    .description("Bytes of price files read")
+                    .baseUnit("bytes")
+                    .tag("symbol", symbol)
+                    .register(registry);
+            query = Timer.builder("crypto.repository.query")
+                    .description("Time window reads of price records")
+                    .tag("symbol", symbol)
+                    .register(registry);
+            load = Timer.builder("crypto.repository.load")
+                    .description("Reads of whole price files into memory")
+                    .tag("symbol", symbol)
+                    .register(registry);
+        }
+
+        private void countRead(final long rows, final long bytes) {
+            rowsRead.increment(rows);
+            bytesRead.increment(Math.max(bytes, 0));
+        }
     }
 }
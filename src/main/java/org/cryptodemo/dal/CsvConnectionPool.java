@@ -0,0 +1,178 @@
+package org.cryptodemo.dal;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size pool of csvjdbc connections. A connection is used by one thread at a time and caches statements
+ * prepared on it, so concurrent reads of different files do not serialize on a single driver connection.
+ */
+@Component
+public class CsvConnectionPool implements InitializingBean, DisposableBean, MeterBinder {
+
+    @Value("${datasource.url}")
+    private String datasourceUrl;
+    @Value("${datasource.pool.size}")
+    private int poolSize;
+    @Value("${datasource.pool.acquire-timeout-ms}")
+    private long acquireTimeoutMillis;
+
+    private BlockingQueue<PooledConnection> idleConnections;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireWaitNanos = new LongAdder();
+    private final LongAdder acquireTimeouts = new LongAdder();
+
+    /**
+     * Takes a connection from the pool, waiting up to the configured timeout for one to be returned.
+     * The connection must be closed to give it back to the pool.
+     * @return connection for exclusive use by the calling thread
+     * @throws SQLException when no connection becomes available in time
+     */
+    public PooledConnection acquire() throws SQLException {
+        final long start = System.nanoTime();
+        final PooledConnection connection;
+        try {
+            connection = idleConnections.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        } finally {
+            acquireCount.increment();
+            acquireWaitNanos.add(System.nanoTime() - start);
+        }
+        if (connection == null) {
+            acquireTimeouts.increment();
+            throw new SQLTimeoutException("No connection available within " + acquireTimeoutMillis + " ms");
+        }
+        activeConnections.incrementAndGet();
+        connection.acquired.set(true);
+        return connection;
+    }
+
+    private void release(final PooledConnection connection) {
+        activeConnections.decrementAndGet();
+        PooledConnection released = connection;
+        try {
+            if (connection.connection.isClosed()) {
+                released = openConnection();
+            }
+        } catch (SQLException e) {
+            // keep the old connection, the next user gets the error of the broken connection
+        }
+        idleConnections.offer(released);
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        final Properties props = new Properties();
+        // Define column names and column data types here.
+        props.put("suppressHeaders", "false");
+        props.put("headerline", "timestamp,symbol,price");
+        props.put("columnTypes", "Long,String,String");
+        props.put("ignoreNonParseableLines", "true");
+        return new PooledConnection(DriverManager.getConnection(datasourceUrl, props));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("datasource.pool.size must be positive: " + poolSize);
+        }
+        idleConnections = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            idleConnections.add(openConnection());
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        PooledConnection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.connection.close();
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("csvjdbc.pool.connections.active", activeConnections, AtomicInteger::get)
+                .description("Connections currently used by a reader")
+                .register(registry);
+        Gauge.builder("csvjdbc.pool.connections.idle", this, pool -> pool.idleConnections.size())
+                .description("Connections waiting in the pool")
+                .register(registry);
+        Gauge.builder("csvjdbc.pool.connections.max", this, pool -> pool.poolSize)
+                .description("Configured pool size")
+                .register(registry);
+        FunctionTimer.builder("csvjdbc.pool.acquire", this,
+                        pool -> pool.acquireCount.sum(), pool -> pool.acquireWaitNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time spent waiting for a connection")
+                .register(registry);
+        FunctionCounter.builder("csvjdbc.pool.acquire.timeouts", acquireTimeouts, LongAdder::sum)
+                .description("Requests for a connection that timed out")
+                .register(registry);
+    }
+
+    /**
+     * Connection taken from {@link CsvConnectionPool}, closing it returns it to the pool.
+     */
+    public final class PooledConnection implements AutoCloseable {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private final AtomicBoolean acquired = new AtomicBoolean();
+
+        private PooledConnection(final Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Returns a statement prepared earlier on this connection for the same SQL, or prepares a new one.
+         * The statement must not be closed by the caller.
+         */
+        public PreparedStatement prepareStatement(final String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        public DatabaseMetaData getMetaData() throws SQLException {
+            return connection.getMetaData();
+        }
+
+        /**
+         * Returns the connection to the pool. Closing it again is a no-op until it is acquired again.
+         */
+        @Override
+        public void close() {
+            if (acquired.compareAndSet(true, false)) {
+                release(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.cryptodemo.dal;
+
+import java.util.Arrays;
+
+/**
+ * Price columns kept in heap arrays. Appending creates a new instance sharing the arrays while they have spare
+ * capacity: rows are only written past the size of existing instances, so these keep seeing their own rows.
+ */
+final class HeapPriceColumns implements PriceColumns {
+
+    private final long[] timestamps;
+    private final long[] unscaledPrices;
+    private final int scale;
+    private final int size;
+
+    HeapPriceColumns(final long[] timestamps, final long[] unscaledPrices, final int scale) {
+        this(timestamps, unscaledPrices, scale, timestamps.length);
+    }
+
+    private HeapPriceColumns(final long[] timestamps, final long[] unscaledPrices, final int scale, final int size) {
+        this.timestamps = timestamps;
+        this.unscaledPrices = unscaledPrices;
+        this.scale = scale;
+        this.size = size;
+    }
+
+    /**
+     * Appends rows after the last row of these columns. Must be called on the latest instance only, appending to
+     * an instance which was already appended to would overwrite rows of the newer instance.
+     * @param rows appended rows, must have the scale of these columns
+     * @return columns with the appended rows
+     */
+    HeapPriceColumns append(final PriceRows rows) {
+        final int count = rows.size();
+        long[] targetTimestamps = timestamps;
+        long[] targetPrices = unscaledPrices;
+        if (size + count > timestamps.length) {
+            final int capacity = Math.max(size + count, timestamps.length * 2);
+            targetTimestamps = Arrays.copyOf(timestamps, capacity);
+            targetPrices = Arrays.copyOf(unscaledPrices, capacity);
+        }
+        for (int i = 0; i < count; i++) {
+            targetTimestamps[size + i] = rows.timestamp(i);
+            targetPrices[size + i] = rows.unscaledPrice(i);
+        }
+        return new HeapPriceColumns(targetTimestamps, targetPrices, scale, size + count);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long timestamp(final int index) {
+        return timestamps[index];
+    }
+
+    @Override
+    public long unscaledPrice(final int index) {
+        return unscaledPrices[index];
+    }
+
+    @Override
+    public int scale() {
+        return scale;
+    }
+}
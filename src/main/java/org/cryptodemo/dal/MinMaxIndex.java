@@ -0,0 +1,17 @@
+package org.cryptodemo.dal;
+
+/**
+ * Answers the lowest and the highest price of a range of rows.
+ */
+interface MinMaxIndex {
+
+    /**
+     * @return index of the row with the lowest value between {@code from} (inclusive) and {@code until} (exclusive)
+     */
+    int minIndex(int from, int until);
+
+    /**
+     * @return index of the row with the highest value between {@code from} (inclusive) and {@code until} (exclusive)
+     */
+    int maxIndex(int from, int until);
+}
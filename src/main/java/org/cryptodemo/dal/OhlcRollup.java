@@ -0,0 +1,199 @@
+package org.cryptodemo.dal;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Open/high/low/close buckets of a price series at one {@link RollupResolution}. Buckets exist only for periods
+ * that have data and keep row indices into the series: the bucket rows are {@code [firstIndex, untilIndex)},
+ * so open and close are the first and the last row, low and high are kept as {@code minIndex} and {@code maxIndex}.
+ * <p>
+ * Rows are appended by creating a new instance sharing the bucket arrays. The last bucket of an instance is the
+ * only one an append can change, so each instance keeps its own copy of it and ignores the shared arrays for it.
+ */
+final class OhlcRollup {
+
+    private final RollupResolution resolution;
+    private final ZoneId zone;
+    private final long[] bucketStarts;
+    private final int[] firstIndices;
+    private final int[] untilIndices;
+    private final int[] minIndices;
+    private final int[] maxIndices;
+    private final int bucketCount;
+    private final int lastUntilIndex;
+    private final int lastMinIndex;
+    private final int lastMaxIndex;
+    private final long lastBucketEnd;
+    private final IntBinaryOperator comparator;
+
+    private OhlcRollup(final RollupResolution resolution, final ZoneId zone, final long[] bucketStarts,
+                       final int[] firstIndices, final int[] untilIndices, final int[] minIndices,
+                       final int[] maxIndices, final int bucketCount, final int lastUntilIndex,
+                       final int lastMinIndex, final int lastMaxIndex, final long lastBucketEnd,
+                       final IntBinaryOperator comparator) {
+        this.resolution = resolution;
+        this.zone = zone;
+        this.bucketStarts = bucketStarts;
+        this.firstIndices = firstIndices;
+        this.untilIndices = untilIndices;
+        this.minIndices = minIndices;
+        this.maxIndices = maxIndices;
+        this.bucketCount = bucketCount;
+        this.lastUntilIndex = lastUntilIndex;
+        this.lastMinIndex = lastMinIndex;
+        this.lastMaxIndex = lastMaxIndex;
+        this.lastBucketEnd = lastBucketEnd;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Aggregates sorted rows into buckets in a single pass.
+     * @param timestamps returns timestamp of a row, rows are sorted by timestamp in ascending order
+     * @param size number of rows
+     * @param comparator compares prices of two rows given by their indices
+     */
+    static OhlcRollup build(final RollupResolution resolution, final ZoneId zone, final IntToLongFunction timestamps,
+                            final int size, final IntBinaryOperator comparator) {
+        final OhlcRollup empty = new OhlcRollup(resolution, zone, new long[16], new int[16], new int[16],
+                new int[16], new int[16], 0, 0, 0, 0, Long.MIN_VALUE, comparator);
+        return empty.append(timestamps, size, comparator);
+    }
+
+    /**
+     * Aggregates rows appended after the last aggregated row. Must be called on the latest instance only.
+     * @param timestamps returns timestamp of a row of the extended series
+     * @param newSize number of rows including the appended ones, appended rows must not be older than existing ones
+     * @param newComparator compares prices of two rows of the extended series
+     * @return rollup of the extended series
+     */
+    OhlcRollup append(final IntToLongFunction timestamps, final int newSize, final IntBinaryOperator newComparator) {
+        long[] starts = bucketStarts;
+        int[] firsts = firstIndices, untils = untilIndices, mins = minIndices, maxs = maxIndices;
+        int count = bucketCount;
+        int until = lastUntilIndex, min = lastMinIndex, max = lastMaxIndex;
+        long end = lastBucketEnd;
+        for (int i = count == 0 ? 0 : until; i < newSize; i++) {
+            final long timestamp = timestamps.applyAsLong(i);
+            if (count == 0 || timestamp >= end) {
+                if (count > 0) {
+                    untils[count - 1] = until;
+                    mins[count - 1] = min;
+                    maxs[count - 1] = max;
+                }
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    firsts = Arrays.copyOf(firsts, count * 2);
+                    untils = Arrays.copyOf(untils, count * 2);
+                    mins = Arrays.copyOf(mins, count * 2);
+                    maxs = Arrays.copyOf(maxs, count * 2);
+                }
+                final long start = resolution.bucketStart(timestamp, zone);
+                end = resolution.nextBucketStart(start, zone);
+                starts[count] = start;
+                firsts[count] = i;
+                min = i;
+                max = i;
+                count++;
+            } else {
+                if (newComparator.applyAsInt(i, min) < 0) {
+                    min = i;
+                }
+                if (newComparator.applyAsInt(i, max) > 0) {
+                    max = i;
+                }
+            }
+            until = i + 1;
+        }
+        return new OhlcRollup(resolution, zone, starts, firsts, untils, mins, maxs, count, until, min, max, end,
+                newComparator);
+    }
+
+    RollupResolution resolution() {
+        return resolution;
+    }
+
+    int bucketCount() {
+        return bucketCount;
+    }
+
+    long bucketStart(final int bucket) {
+        return bucketStarts[bucket];
+    }
+
+    int firstIndex(final int bucket) {
+        return firstIndices[bucket];
+    }
+
+    int untilIndex(final int bucket) {
+        return bucket == bucketCount - 1 ? lastUntilIndex : untilIndices[bucket];
+    }
+
+    int minIndex(final int bucket) {
+        return bucket == bucketCount - 1 ? lastMinIndex : minIndices[bucket];
+    }
+
+    int maxIndex(final int bucket) {
+        return bucket == bucketCount - 1 ? lastMaxIndex : maxIndices[bucket];
+    }
+
+    /**
+     * @return first bucket whose rows all have index greater than or equal to {@code rowIndex}
+     */
+    int firstBucketFrom(final int rowIndex) {
+        int low = 0, high = bucketCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (firstIndices[mid] < rowIndex) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return bucket after the last bucket whose rows all have index less than {@code rowIndex}
+     */
+    int bucketUntil(final int rowIndex) {
+        int low = 0, high = bucketCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (untilIndex(mid) <= rowIndex) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return row index of the lowest price among buckets {@code [fromBucket, untilBucket)}
+     */
+    int minIndex(final int fromBucket, final int untilBucket) {
+        int result = minIndex(fromBucket);
+        for (int bucket = fromBucket + 1; bucket < untilBucket; bucket++) {
+            if (comparator.applyAsInt(minIndex(bucket), result) < 0) {
+                result = minIndex(bucket);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return row index of the highest price among buckets {@code [fromBucket, untilBucket)}
+     */
+    int maxIndex(final int fromBucket, final int untilBucket) {
+        int result = maxIndex(fromBucket);
+        for (int bucket = fromBucket + 1; bucket < untilBucket; bucket++) {
+            if (comparator.applyAsInt(maxIndex(bucket), result) > 0) {
+                result = maxIndex(bucket);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,154 @@
+package org.cryptodemo.dal;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads price files without csvjdbc. A file is split into parts of about {@code datasource.parallel-read.split-bytes}
+ * ending at line boundaries, the parts are parsed from their bytes by {@link PriceLineParser#parseLines} on a
+ * fork-join pool and their rows are concatenated in file order. Parts of local files are memory mapped, entries of zip
+ * archives are inflated by the calling thread and handed over to the pool part by part while the rest is inflated.
+ */
+@Component
+public class ParallelCsvReader {
+
+    private static final int SCAN_BUFFER_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+    private final int splitBytes;
+
+    public ParallelCsvReader(@Qualifier("priceReadPool") final ForkJoinPool pool,
+                             @Value("${datasource.parallel-read.split-bytes}") final int splitBytes) {
+        this.pool = pool;
+        this.splitBytes = splitBytes;
+    }
+
+    /**
+     * Reads rows of a local price file.
+     * @param file price file
+     * @param length number of bytes to read from the start of the file, the last line read does not need a line
+     * terminator
+     * @return rows in file order
+     * @throws IOException on file read error
+     */
+    public PriceRows read(final Path file, final long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final List<ForkJoinTask<PriceRows>> parts = new ArrayList<>();
+            long start = 0;
+            while (start < length) {
+                final long end = lineEnd(channel, Math.min(start + splitBytes, length), length);
+                final ByteBuffer part = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                parts.add(pool.submit(() -> parse(part, part.limit())));
+                start = end;
+            }
+            return concat(parts);
+        }
+    }
+
+    /**
+     * Reads rows of a price file packed in a zip archive.
+     * @param archive zip archive
+     * @param entryName name of the price file in the archive
+     * @return rows in file order
+     * @throws NoSuchFileException when the archive has no such entry
+     * @throws IOException on archive read error
+     */
+    public PriceRows readZipEntry(final Path archive, final String entryName) throws IOException {
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            final ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null) {
+                throw new NoSuchFileException(archive + "!/" + entryName);
+            }
+            try (InputStream input = zip.getInputStream(entry)) {
+                final List<ForkJoinTask<PriceRows>> parts = new ArrayList<>();
+                byte[] block = new byte[splitBytes];
+                int filled = 0;
+                while (true) {
+                    filled += input.readNBytes(block, filled, block.length - filled);
+                    final boolean last = filled < block.length;
+                    if (last && filled == 0) {
+                        // an empty entry, or the previous block ended with the entry
+                        return concat(parts);
+                    }
+                    final int cut = last ? filled : lastLineEnd(block, filled);
+                    if (cut == 0) {
+                        // a line longer than the block, read on until it ends
+                        block = Arrays.copyOf(block, block.length * 2);
+                        continue;
+                    }
+                    final ByteBuffer part = ByteBuffer.wrap(block);
+                    parts.add(pool.submit(() -> parse(part, cut)));
+                    if (last) {
+                        return concat(parts);
+                    }
+                    final byte[] next = new byte[block.length];
+                    System.arraycopy(block, cut, next, 0, filled - cut);
+                    filled -= cut;
+                    block = next;
+                }
+            }
+        }
+    }
+
+    private static PriceRows parse(final ByteBuffer part, final int until) {
+        final PriceRows rows = new PriceRows();
+        PriceLineParser.parseLines(part, 0, until, rows);
+        return rows;
+    }
+
+    private static PriceRows concat(final List<ForkJoinTask<PriceRows>> parts) {
+        final PriceRows rows = new PriceRows();
+        for (ForkJoinTask<PriceRows> part : parts) {
+            rows.addAll(part.join());
+        }
+        return rows;
+    }
+
+    /**
+     * @return position after the first line terminator at or after {@code position}, {@code length} if there is none
+     */
+    private static long lineEnd(final FileChannel channel, final long position, final long length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long offset = position;
+        while (offset < length) {
+            final int read = channel.read(buffer.clear(), offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read && offset + i < length; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return length;
+    }
+
+    /**
+     * @return position after the last line terminator of the block, {@code 0} if there is none
+     */
+    private static int lastLineEnd(final byte[] block, final int filled) {
+        int i = filled;
+        while (i > 0 && block[i - 1] != '\n') {
+            i--;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,220 @@
+package org.cryptodemo.dal;
+
+import java.util.Arrays;
+
+/**
+ * Immutable compressed block of up to {@link #SIZE} consecutive rows. The header keeps the first and the last row
+ * and the lowest and the highest price, the other rows are a bit stream: timestamps are encoded as the difference
+ * of consecutive deltas (delta-of-delta), which is a single bit for evenly spaced ticks, prices as the delta to the
+ * previous price. Both are zigzag encoded into buckets of growing width selected by a unary prefix.
+ */
+final class PriceChunk {
+
+    static final int SIZE = 128;
+
+    private static final int[] TIMESTAMP_WIDTHS = {7, 9, 12, 64};
+    private static final int[] PRICE_WIDTHS = {6, 13, 20, 64};
+
+    private final long[] bits;
+    private final int count;
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+    private final long firstPrice;
+    private final long minPrice;
+    private final long maxPrice;
+    private final int minOffset;
+    private final int maxOffset;
+
+    private PriceChunk(final long[] bits, final int count, final long firstTimestamp, final long lastTimestamp,
+                       final long firstPrice, final long minPrice, final long maxPrice, final int minOffset,
+                       final int maxOffset) {
+        this.bits = bits;
+        this.count = count;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+        this.firstPrice = firstPrice;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.minOffset = minOffset;
+        this.maxOffset = maxOffset;
+    }
+
+    /**
+     * @param timestamps timestamps sorted in ascending order
+     * @param prices unscaled prices
+     * @param count number of rows to encode from the start of the arrays, between 1 and {@link #SIZE}
+     */
+    static PriceChunk encode(final long[] timestamps, final long[] prices, final int count) {
+        final BitWriter writer = new BitWriter();
+        long minPrice = prices[0], maxPrice = prices[0];
+        int minOffset = 0, maxOffset = 0;
+        long previousDelta = 0;
+        for (int i = 1; i < count; i++) {
+            final long delta = timestamps[i] - timestamps[i - 1];
+            writer.writeBucketed(zigzag(delta - previousDelta), TIMESTAMP_WIDTHS);
+            previousDelta = delta;
+            writer.writeBucketed(zigzag(prices[i] - prices[i - 1]), PRICE_WIDTHS);
+            if (prices[i] < minPrice) {
+                minPrice = prices[i];
+                minOffset = i;
+            }
+            if (prices[i] > maxPrice) {
+                maxPrice = prices[i];
+                maxOffset = i;
+            }
+        }
+        return new PriceChunk(writer.toArray(), count, timestamps[0], timestamps[count - 1], prices[0],
+                minPrice, maxPrice, minOffset, maxOffset);
+    }
+
+    /**
+     * Decodes all rows into the start of the arrays, which must have room for {@link #count()} rows.
+     */
+    void decode(final long[] timestamps, final long[] prices) {
+        final BitReader reader = new BitReader(bits);
+        timestamps[0] = firstTimestamp;
+        prices[0] = firstPrice;
+        long delta = 0;
+        for (int i = 1; i < count; i++) {
+            delta += unzigzag(reader.readBucketed(TIMESTAMP_WIDTHS));
+            timestamps[i] = timestamps[i - 1] + delta;
+            prices[i] = prices[i - 1] + unzigzag(reader.readBucketed(PRICE_WIDTHS));
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    long minPrice() {
+        return minPrice;
+    }
+
+    long maxPrice() {
+        return maxPrice;
+    }
+
+    /**
+     * @return offset within the chunk of the first row with the lowest price
+     */
+    int minOffset() {
+        return minOffset;
+    }
+
+    /**
+     * @return offset within the chunk of the first row with the highest price
+     */
+    int maxOffset() {
+        return maxOffset;
+    }
+
+    /**
+     * @return size of the encoded rows in bytes, without the header
+     */
+    int encodedBytes() {
+        return bits.length * Long.BYTES;
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes bits from the most significant bit of each word on.
+     */
+    private static final class BitWriter {
+
+        private long[] words = new long[16];
+        private int position;
+
+        /**
+         * Writes zero as a single {@code 0} bit, other values as {@code k + 1} one bits, a {@code 0} bit unless
+         * {@code k} is the last bucket, and the value in {@code widths[k]} bits, {@code k} being the first bucket
+         * wide enough for the value.
+         */
+        void writeBucketed(final long value, final int[] widths) {
+            if (value == 0) {
+                write(0, 1);
+                return;
+            }
+            for (int bucket = 0; bucket < widths.length; bucket++) {
+                final boolean last = bucket == widths.length - 1;
+                if (last || value >>> widths[bucket] == 0) {
+                    write(-1L, bucket + 1);
+                    if (!last) {
+                        write(0, 1);
+                    }
+                    write(value, widths[bucket]);
+                    return;
+                }
+            }
+        }
+
+        void write(final long value, final int width) {
+            if ((position + width + 63) >>> 6 > words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            final long masked = width == 64 ? value : value & ((1L << width) - 1);
+            final int index = position >>> 6;
+            final int free = 64 - (position & 63);
+            if (width <= free) {
+                words[index] |= masked << (free - width);
+            } else {
+                final int rest = width - free;
+                words[index] |= masked >>> rest;
+                words[index + 1] |= masked << (64 - rest);
+            }
+            position += width;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(words, (position + 63) >>> 6);
+        }
+    }
+
+    private static final class BitReader {
+
+        private final long[] words;
+        private int position;
+
+        BitReader(final long[] words) {
+            this.words = words;
+        }
+
+        long readBucketed(final int[] widths) {
+            int ones = 0;
+            while (ones < widths.length && read(1) == 1) {
+                ones++;
+            }
+            return ones == 0 ? 0 : read(widths[ones - 1]);
+        }
+
+        long read(final int width) {
+            final int index = position >>> 6;
+            final int offset = position & 63;
+            final int free = 64 - offset;
+            final long value;
+            if (width <= free) {
+                value = (words[index] << offset) >>> (64 - width);
+            } else {
+                final int rest = width - free;
+                final long high = words[index] & ((1L << free) - 1);
+                value = (high << rest) | (words[index + 1] >>> (64 - rest));
+            }
+            position += width;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.cryptodemo.dal;
+
+/**
+ * Storage of a price history as timestamp and price columns sorted by timestamp in ascending order. Prices are
+ * unscaled values of a scale common for all rows.
+ */
+interface PriceColumns {
+
+    int size();
+
+    long timestamp(int index);
+
+    long unscaledPrice(int index);
+
+    int scale();
+
+    /**
+     * Compares prices of two rows given by their indices.
+     */
+    default int comparePrices(final int left, final int right) {
+        return Long.compare(unscaledPrice(left), unscaledPrice(right));
+    }
+
+    /**
+     * @return index of the first row with timestamp greater than or equal to {@code fromTimestamp}
+     */
+    default int indexFrom(final long fromTimestamp) {
+        int low = 0, high = size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (timestamp(mid) < fromTimestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index after the last row with timestamp less than or equal to {@code untilTimestamp}
+     */
+    default int indexUntil(final long untilTimestamp) {
+        int low = 0, high = size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (timestamp(mid) <= untilTimestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,59 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.Price;
+
+/**
+ * Forward-only cursor over rows of a {@link PriceSeries} in ascending timestamp order. The cursor reads the
+ * series in place and holds no resources, rows appended to the history after the cursor was opened are not seen.
+ * <p>
+ * The cursor starts before the first row, {@link #next()} has to be called before reading a row.
+ */
+public final class PriceCursor {
+
+    private final PriceSeries series;
+    private final int until;
+    private int index;
+
+    PriceCursor(final PriceSeries series, final int from, final int until) {
+        this.series = series;
+        this.until = until;
+        this.index = from - 1;
+    }
+
+    /**
+     * Moves to the next row.
+     * @return {@code false} if there are no more rows
+     */
+    public boolean next() {
+        if (index < until) {
+            index++;
+        }
+        return index < until;
+    }
+
+    public String symbol() {
+        return series.symbol();
+    }
+
+    public long timestamp() {
+        return series.timestamp(index);
+    }
+
+    /**
+     * @return price of the current row, a new instance on each call
+     */
+    public Price price() {
+        return series.price(index);
+    }
+
+    public long unscaledPrice() {
+        return series.unscaledPrice(index);
+    }
+
+    /**
+     * @return number of decimal places of unscaled prices
+     */
+    public int scale() {
+        return series.scale();
+    }
+}
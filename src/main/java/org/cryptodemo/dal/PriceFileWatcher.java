@@ -0,0 +1,123 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.CryptoName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the CSV price files for appended rows and passes them to {@link CryptoRepository}. Changes are picked up
+ * from file system events, all files are additionally checked every poll interval for file systems which do not
+ * report changes. New and removed files are registered in {@link SymbolRegistry} the same way.
+ */
+@Component
+public class PriceFileWatcher implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PriceFileWatcher.class);
+    private static final String FILE_SUFFIX = "_values.csv";
+
+    private final CryptoRepository cryptoRepository;
+    private final SymbolRegistry symbolRegistry;
+    private final boolean enabled;
+    private final long pollIntervalMillis;
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    public PriceFileWatcher(final CryptoRepository cryptoRepository,
+                            final SymbolRegistry symbolRegistry,
+                            @Value("${datasource.watch.enabled}") final boolean enabled,
+                            @Value("${datasource.watch.poll-interval-ms}") final long pollIntervalMillis) {
+        this.cryptoRepository = cryptoRepository;
+        this.symbolRegistry = symbolRegistry;
+        this.enabled = enabled;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        final Optional<Path> directory = cryptoRepository.getCsvDirectory();
+        if (!enabled || directory.isEmpty()) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.get().register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        watcherThread = new Thread(this::watch, "price-file-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+            watchService.close();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final WatchKey key = watchService.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                final Set<CryptoName> changed = new HashSet<>();
+                if (key == null) {
+                    symbolRegistry.refresh();
+                    changed.addAll(symbolRegistry.symbols());
+                } else {
+                    final List<WatchEvent<?>> events = key.pollEvents();
+                    key.reset();
+                    if (events.stream().anyMatch(event -> event.kind() != StandardWatchEventKinds.ENTRY_MODIFY)) {
+                        symbolRegistry.refresh();
+                    }
+                    for (WatchEvent<?> event : events) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            changed.addAll(symbolRegistry.symbols());
+                        } else {
+                            toCryptoName((Path) event.context()).ifPresent(changed::add);
+                        }
+                    }
+                }
+                changed.forEach(this::readAppendedRows);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    private void readAppendedRows(final CryptoName cryptoName) {
+        try {
+            final int rows = cryptoRepository.readAppendedRows(cryptoName);
+            if (rows > 0) {
+                LOG.debug("Read {} appended rows for {}", rows, cryptoName);
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            LOG.warn("Failed to read appended rows for {}", cryptoName, e);
+        }
+    }
+
+    private Optional<CryptoName> toCryptoName(final Path file) {
+        final String fileName = file.getFileName().toString();
+        if (!fileName.endsWith(FILE_SUFFIX)) {
+            return Optional.empty();
+        }
+        return symbolRegistry.find(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+    }
+}
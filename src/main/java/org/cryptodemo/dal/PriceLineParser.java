@@ -0,0 +1,166 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.Price;
+import org.cryptodemo.data.entity.CryptoRecord;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses lines of {@code <SYMBOL>_values.csv} price files ({@code timestamp,symbol,price}).
+ */
+public final class PriceLineParser {
+
+    /** Digits that always fit into a {@code long}, longer numbers are parsed from a {@code String}. */
+    private static final int MAX_FAST_DIGITS = 18;
+
+    private PriceLineParser() {
+    }
+
+    /**
+     * @param line single line of a price file without the line terminator
+     * @return parsed record or {@code null} when the line is the header or can not be parsed, such lines are
+     * ignored the same way csvjdbc ignores them with {@code ignoreNonParseableLines}
+     */
+    public static CryptoRecord parse(final String line) {
+        final String[] columns = line.split(",", -1);
+        if (columns.length != 3) {
+            return null;
+        }
+        try {
+            return new CryptoRecord(Long.parseLong(columns[0].trim()), columns[1].trim(), Price.parse(columns[2].trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses lines of a price file directly from its bytes without creating objects per field; only numbers in
+     * other than plain notation or with more than 18 digits are parsed from a {@code String}. Lines that
+     * {@link #parse(String)} would ignore are ignored.
+     * @param bytes content of a price file, read by absolute positions
+     * @param from position of the first line
+     * @param until position after the last line, the last line does not need a line terminator
+     * @param rows rows to add the parsed rows to
+     * @throws ArithmeticException when a price can not be represented at the common scale of the rows
+     */
+    public static void parseLines(final ByteBuffer bytes, final int from, final int until, final PriceRows rows) {
+        int lineStart = from;
+        while (lineStart < until) {
+            int lineEnd = lineStart;
+            while (lineEnd < until && bytes.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            parseLine(bytes, lineStart, lineEnd, rows);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private static void parseLine(final ByteBuffer bytes, final int start, final int end, final PriceRows rows) {
+        final int firstComma = indexOf(bytes, ',', start, end);
+        final int secondComma = indexOf(bytes, ',', firstComma + 1, end);
+        if (secondComma == end || indexOf(bytes, ',', secondComma + 1, end) != end) {
+            return;
+        }
+        final int timestampStart = skipBlanks(bytes, start, firstComma);
+        final long timestamp;
+        try {
+            timestamp = parseLong(bytes, timestampStart, trimBlanks(bytes, timestampStart, firstComma));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        int priceStart = skipBlanks(bytes, secondComma + 1, end);
+        final int priceEnd = trimBlanks(bytes, priceStart, end);
+        long unscaled = 0;
+        int scale = -1;
+        int digits = 0;
+        final boolean negative = priceStart < priceEnd && bytes.get(priceStart) == '-';
+        if (negative || (priceStart < priceEnd && bytes.get(priceStart) == '+')) {
+            priceStart++;
+        }
+        for (int i = priceStart; i < priceEnd; i++) {
+            final byte c = bytes.get(i);
+            if (c >= '0' && c <= '9' && digits < MAX_FAST_DIGITS) {
+                digits++;
+                unscaled = unscaled * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                addParsedPrice(rows, timestamp, string(bytes, negative ? priceStart - 1 : priceStart, priceEnd));
+                return;
+            }
+        }
+        if (digits > 0) {
+            rows.add(timestamp, negative ? -unscaled : unscaled, Math.max(scale, 0));
+        }
+    }
+
+    private static void addParsedPrice(final PriceRows rows, final long timestamp, final String price) {
+        final Price parsed;
+        try {
+            parsed = Price.parse(price);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        rows.add(timestamp, parsed);
+    }
+
+    /**
+     * @throws NumberFormatException when the bytes are not a decimal {@code long}
+     */
+    private static long parseLong(final ByteBuffer bytes, final int start, final int end) {
+        final boolean negative = start < end && bytes.get(start) == '-';
+        final int digitsStart = negative || (start < end && bytes.get(start) == '+') ? start + 1 : start;
+        if (digitsStart == end || end - digitsStart > MAX_FAST_DIGITS) {
+            return Long.parseLong(string(bytes, start, end));
+        }
+        long value = 0;
+        for (int i = digitsStart; i < end; i++) {
+            final byte c = bytes.get(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a number");
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return position of the first {@code c} between {@code from} and {@code end}, {@code end} if there is none
+     */
+    private static int indexOf(final ByteBuffer bytes, final char c, final int from, final int end) {
+        int i = Math.min(from, end);
+        while (i < end && bytes.get(i) != c) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Skips leading whitespace and control characters the same way as {@link String#trim()}.
+     */
+    private static int skipBlanks(final ByteBuffer bytes, final int from, final int end) {
+        int i = from;
+        while (i < end && (bytes.get(i) & 0xFF) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimBlanks(final ByteBuffer bytes, final int start, final int end) {
+        int i = end;
+        while (i > start && (bytes.get(i - 1) & 0xFF) <= ' ') {
+            i--;
+        }
+        return i;
+    }
+
+    private static String string(final ByteBuffer bytes, final int start, final int end) {
+        final byte[] value = new byte[end - start];
+        bytes.get(start, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
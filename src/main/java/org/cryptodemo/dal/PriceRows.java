@@ -0,0 +1,147 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.Price;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Growable buffer of rows read from a price file before they become a {@link PriceSeries}. Prices are kept as
+ * unscaled values of a common scale, which is the greatest scale of all added prices up to {@link #MAX_SCALE}; rows
+ * added earlier are rescaled when a price with more decimal places arrives.
+ */
+public final class PriceRows {
+
+    /**
+     * Greatest common scale, prices with more decimal places are rounded half up to it. A single price with many
+     * decimal places would otherwise push all prices of a crypto out of the {@code long} range, at this scale prices
+     * up to about {@code 9.2e8} fit.
+     */
+    public static final int MAX_SCALE = 10;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] unscaledPrices = new long[INITIAL_CAPACITY];
+    private int scale;
+    private int size;
+
+    /**
+     * @throws ArithmeticException when the price can not be represented at the common scale
+     */
+    public void add(final long timestamp, final Price price) {
+        add(timestamp, price.unscaled(), price.scale());
+    }
+
+    /**
+     * @throws ArithmeticException when the price can not be represented at the common scale
+     */
+    public void add(final long timestamp, final long unscaledPrice, final int priceScale) {
+        if (priceScale > MAX_SCALE) {
+            add(timestamp, Price.round(unscaledPrice, priceScale, MAX_SCALE), MAX_SCALE);
+            return;
+        }
+        if (priceScale > scale) {
+            rescale(priceScale);
+        }
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            unscaledPrices = Arrays.copyOf(unscaledPrices, size * 2);
+        }
+        timestamps[size] = timestamp;
+        unscaledPrices[size] = Price.rescale(unscaledPrice, priceScale, scale);
+        size++;
+    }
+
+    /**
+     * Adds all rows of another buffer after the rows of this one.
+     * @throws ArithmeticException when a price can not be represented at the common scale
+     */
+    public void addAll(final PriceRows rows) {
+        if (rows.scale > scale) {
+            rescale(rows.scale);
+        }
+        if (size + rows.size > timestamps.length) {
+            final int capacity = Math.max(size + rows.size, timestamps.length * 2);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            unscaledPrices = Arrays.copyOf(unscaledPrices, capacity);
+        }
+        System.arraycopy(rows.timestamps, 0, timestamps, size, rows.size);
+        if (rows.scale == scale) {
+            System.arraycopy(rows.unscaledPrices, 0, unscaledPrices, size, rows.size);
+        } else {
+            for (int i = 0; i < rows.size; i++) {
+                unscaledPrices[size + i] = Price.rescale(rows.unscaledPrices[i], rows.scale, scale);
+            }
+        }
+        size += rows.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    public long timestamp(final int index) {
+        return timestamps[index];
+    }
+
+    public long unscaledPrice(final int index) {
+        return unscaledPrices[index];
+    }
+
+    /**
+     * Converts all prices to a greater or equal scale.
+     * @throws ArithmeticException when a price can not be represented at the new scale
+     */
+    public void rescale(final int newScale) {
+        for (int i = 0; i < size; i++) {
+            unscaledPrices[i] = Price.rescale(unscaledPrices[i], scale, newScale);
+        }
+        scale = newScale;
+    }
+
+    /**
+     * Sorts rows by timestamp, keeping the original order of rows with the same timestamp.
+     */
+    public void sort() {
+        if (isSorted()) {
+            return;
+        }
+        final long[] originalTimestamps = Arrays.copyOf(timestamps, size);
+        final long[] originalPrices = Arrays.copyOf(unscaledPrices, size);
+        final Integer[] order = new Integer[size];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingLong(i -> originalTimestamps[i]));
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = originalTimestamps[order[i]];
+            unscaledPrices[i] = originalPrices[order[i]];
+        }
+    }
+
+    /**
+     * @return timestamp column trimmed to the number of rows
+     */
+    long[] timestamps() {
+        return Arrays.copyOf(timestamps, size);
+    }
+
+    /**
+     * @return unscaled price column trimmed to the number of rows
+     */
+    long[] unscaledPrices() {
+        return Arrays.copyOf(unscaledPrices, size);
+    }
+
+    private boolean isSorted() {
+        for (int i = 1; i < size; i++) {
+            if (timestamps[i - 1] > timestamps[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
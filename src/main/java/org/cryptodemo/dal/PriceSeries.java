@@ -0,0 +1,278 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.Price;
+import org.cryptodemo.data.entity.CryptoRecord;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Price history of a single crypto kept as {@link PriceColumns} sorted by timestamp in ascending order. Prices are
+ * stored and compared as fixed-point {@code long} values of the series scale.
+ * Time-range lookups are answered by binary search over the timestamp column. Lowest and highest prices of a range
+ * are combined from whole monthly, daily and hourly {@link OhlcRollup} buckets, only the partial edges below an hour
+ * are answered by {@link RangeMinMaxIndex} built over the raw price column, or by the chunk headers of
+ * {@link CompressedPriceColumns}.
+ * <p>
+ * A series is immutable. Appending rows creates a new series which shares the storage and the aggregates of this
+ * one and only updates them for the new rows.
+ */
+public final class PriceSeries {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final AtomicLong LINEAGES = new AtomicLong();
+
+    private final String symbol;
+    private final long lineage;
+    private final PriceColumns columns;
+    private final MinMaxIndex priceIndex;
+    /** Rollups ordered from the coarsest to the finest resolution. */
+    private final OhlcRollup[] rollups;
+
+    private PriceSeries(final String symbol, final PriceColumns columns) {
+        this.symbol = symbol;
+        this.lineage = LINEAGES.incrementAndGet();
+        this.columns = columns;
+        final int size = columns.size();
+        final IntBinaryOperator comparator = columns::comparePrices;
+        this.priceIndex = columns instanceof CompressedPriceColumns compressedColumns
+                ? compressedColumns : new RangeMinMaxIndex(size, comparator);
+        this.rollups = new OhlcRollup[]{
+                OhlcRollup.build(RollupResolution.MONTH, ZONE, columns::timestamp, size, comparator),
+                OhlcRollup.build(RollupResolution.DAY, ZONE, columns::timestamp, size, comparator),
+                OhlcRollup.build(RollupResolution.HOUR, ZONE, columns::timestamp, size, comparator)
+        };
+    }
+
+    private PriceSeries(final String symbol, final long lineage, final PriceColumns columns,
+                        final MinMaxIndex priceIndex, final OhlcRollup[] rollups) {
+        this.symbol = symbol;
+        this.lineage = lineage;
+        this.columns = columns;
+        this.priceIndex = priceIndex;
+        this.rollups = rollups;
+    }
+
+    /**
+     * Creates a series over columns already sorted by timestamp.
+     * @param symbol crypto symbol the prices belong to
+     * @param columns sorted price columns
+     * @return series backed by the columns
+     */
+    static PriceSeries of(final String symbol, final PriceColumns columns) {
+        return new PriceSeries(symbol, columns);
+    }
+
+    /**
+     * Creates a series from unordered rows, rows are sorted by timestamp in place if needed.
+     * @param symbol crypto symbol the prices belong to
+     * @param rows price rows
+     * @return series sorted by timestamp in ascending order
+     */
+    public static PriceSeries of(final String symbol, final PriceRows rows) {
+        return of(symbol, rows, PriceStorage.HEAP);
+    }
+
+    /**
+     * Creates a series from unordered rows, rows are sorted by timestamp in place if needed.
+     * @param symbol crypto symbol the prices belong to
+     * @param rows price rows
+     * @param storage representation of the columns
+     * @return series sorted by timestamp in ascending order
+     */
+    public static PriceSeries of(final String symbol, final PriceRows rows, final PriceStorage storage) {
+        rows.sort();
+        return new PriceSeries(symbol, switch (storage) {
+            case HEAP -> new HeapPriceColumns(rows.timestamps(), rows.unscaledPrices(), rows.scale());
+            case COMPRESSED -> CompressedPriceColumns.of(rows);
+        });
+    }
+
+    /**
+     * Adds rows to the end of the series. Rows not older than the last row of the series and with no more decimal
+     * places than the series are appended incrementally to the columns, the index and the rollups; otherwise the
+     * whole series is rebuilt. Must be called on the latest series only, existing series are not affected.
+     * @param rows new rows, sorted and rescaled in place if needed
+     * @return series containing existing and new rows
+     */
+    public PriceSeries append(final PriceRows rows) {
+        if (rows.size() == 0) {
+            return this;
+        }
+        rows.sort();
+        final int existing = columns.size();
+        if (!(columns instanceof HeapPriceColumns || columns instanceof CompressedPriceColumns)
+                || rows.scale() > columns.scale()
+                || (existing > 0 && rows.timestamp(0) < columns.timestamp(existing - 1))) {
+            final PriceRows allRows = new PriceRows();
+            for (int i = 0; i < existing; i++) {
+                allRows.add(columns.timestamp(i), columns.unscaledPrice(i), columns.scale());
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                allRows.add(rows.timestamp(i), rows.unscaledPrice(i), rows.scale());
+            }
+            return of(symbol, allRows, storage());
+        }
+        rows.rescale(columns.scale());
+        final PriceColumns appended;
+        final MinMaxIndex appendedIndex;
+        if (columns instanceof CompressedPriceColumns compressedColumns) {
+            final CompressedPriceColumns appendedColumns = compressedColumns.append(rows);
+            appended = appendedColumns;
+            appendedIndex = appendedColumns;
+        } else {
+            appended = ((HeapPriceColumns) columns).append(rows);
+            appendedIndex = ((RangeMinMaxIndex) priceIndex).append(appended.size(), appended::comparePrices);
+        }
+        final IntBinaryOperator comparator = appended::comparePrices;
+        final OhlcRollup[] appendedRollups = new OhlcRollup[rollups.length];
+        for (int i = 0; i < rollups.length; i++) {
+            appendedRollups[i] = rollups[i].append(appended::timestamp, appended.size(), comparator);
+        }
+        return new PriceSeries(symbol, lineage, appended, appendedIndex, appendedRollups);
+    }
+
+    /**
+     * @return storage of the series, a memory mapped series is rebuilt on the heap
+     */
+    private PriceStorage storage() {
+        return columns instanceof CompressedPriceColumns ? PriceStorage.COMPRESSED : PriceStorage.HEAP;
+    }
+
+    public String symbol() {
+        return symbol;
+    }
+
+    /**
+     * @return id shared by a built series and all series appended to it, a rebuilt series gets a new id. A series
+     * with the lineage of an earlier one and at least its size has the rows of the earlier one at the same indices.
+     */
+    public long lineage() {
+        return lineage;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    public long timestamp(final int index) {
+        return columns.timestamp(index);
+    }
+
+    /**
+     * @return price of the row, a new instance on each call
+     */
+    public Price price(final int index) {
+        return new Price(columns.unscaledPrice(index), columns.scale());
+    }
+
+    public long unscaledPrice(final int index) {
+        return columns.unscaledPrice(index);
+    }
+
+    /**
+     * @return number of decimal places common for all prices of the series
+     */
+    public int scale() {
+        return columns.scale();
+    }
+
+    /**
+     * @return index of the first row with timestamp greater than or equal to {@code fromTimestamp}
+     */
+    public int fromIndex(final long fromTimestamp) {
+        return columns.indexFrom(fromTimestamp);
+    }
+
+    /**
+     * @return index after the last row with timestamp less than or equal to {@code untilTimestamp}
+     */
+    public int untilIndex(final long untilTimestamp) {
+        return columns.indexUntil(untilTimestamp);
+    }
+
+    /**
+     * @param from index of the first row of the range (inclusive), must be less than {@code until}
+     * @param until index after the last row of the range (exclusive)
+     * @return index of the row with the lowest price in the range
+     */
+    public int minPriceIndex(final int from, final int until) {
+        return extremePriceIndex(0, from, until, false);
+    }
+
+    /**
+     * @param from index of the first row of the range (inclusive), must be less than {@code until}
+     * @param until index after the last row of the range (exclusive)
+     * @return index of the row with the highest price in the range
+     */
+    public int maxPriceIndex(final int from, final int until) {
+        return extremePriceIndex(0, from, until, true);
+    }
+
+    OhlcRollup rollup(final RollupResolution resolution) {
+        for (OhlcRollup rollup : rollups) {
+            if (rollup.resolution() == resolution) {
+                return rollup;
+            }
+        }
+        throw new IllegalArgumentException("No rollup for " + resolution);
+    }
+
+    /**
+     * Finds the lowest or the highest price of rows {@code [from, until)} using buckets of rollup {@code level} fully
+     * covered by the range and descending to finer rollups for the partial buckets on both edges.
+     */
+    private int extremePriceIndex(final int level, final int from, final int until, final boolean max) {
+        if (level == rollups.length) {
+            return max ? priceIndex.maxIndex(from, until) : priceIndex.minIndex(from, until);
+        }
+        final OhlcRollup rollup = rollups[level];
+        final int fromBucket = rollup.firstBucketFrom(from);
+        final int untilBucket = rollup.bucketUntil(until);
+        if (fromBucket >= untilBucket) {
+            return extremePriceIndex(level + 1, from, until, max);
+        }
+        int result = max ? rollup.maxIndex(fromBucket, untilBucket) : rollup.minIndex(fromBucket, untilBucket);
+        final int innerFrom = rollup.firstIndex(fromBucket);
+        final int innerUntil = rollup.untilIndex(untilBucket - 1);
+        if (from < innerFrom) {
+            result = pick(result, extremePriceIndex(level + 1, from, innerFrom, max), max);
+        }
+        if (innerUntil < until) {
+            result = pick(result, extremePriceIndex(level + 1, innerUntil, until, max), max);
+        }
+        return result;
+    }
+
+    private int pick(final int left, final int right, final boolean max) {
+        final int comparison = columns.comparePrices(right, left);
+        return (max ? comparison > 0 : comparison < 0) ? right : left;
+    }
+
+    /**
+     * Opens a cursor over rows between {@code fromTimestamp} and {@code untilTimestamp} (both inclusive) without
+     * copying them.
+     * @return cursor in ascending timestamp order
+     */
+    public PriceCursor cursor(final long fromTimestamp, final long untilTimestamp) {
+        final int from = fromIndex(fromTimestamp);
+        return new PriceCursor(this, from, Math.max(untilIndex(untilTimestamp), from));
+    }
+
+    /**
+     * Materializes rows between {@code fromTimestamp} and {@code untilTimestamp} (both inclusive).
+     * @return records sorted by timestamp in descending order
+     */
+    public List<CryptoRecord> getRecordsDescending(final long fromTimestamp, final long untilTimestamp) {
+        final int from = fromIndex(fromTimestamp);
+        final int until = untilIndex(untilTimestamp);
+        final List<CryptoRecord> records = new ArrayList<>(Math.max(until - from, 0));
+        for (int i = until - 1; i >= from; i--) {
+            records.add(new CryptoRecord(columns.timestamp(i), symbol, price(i)));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,13 @@
+package org.cryptodemo.dal;
+
+/**
+ * Representation of price series read from CSV files, configured by {@code datasource.storage}.
+ */
+public enum PriceStorage {
+
+    /** Plain timestamp and price arrays, the fastest random access. */
+    HEAP,
+
+    /** {@link PriceChunk} blocks, several times smaller than {@link #HEAP} for regular ticks. */
+    COMPRESSED
+}
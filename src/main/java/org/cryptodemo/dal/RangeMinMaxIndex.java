@@ -0,0 +1,137 @@
+package org.cryptodemo.dal;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Segment tree over a value column answering range minimum and maximum queries in {@code O(log n)}.
+ * Both trees keep row indices rather than values, so the caller can get the value together with its timestamp.
+ * <p>
+ * Leaves are laid out for a power of two capacity, so rows can be appended by updating the path to the root.
+ * A query of rows below {@code size} reads only nodes that cover such rows entirely, an append never changes these
+ * nodes, so an instance stays valid after newer instances were appended to the same trees.
+ */
+final class RangeMinMaxIndex implements MinMaxIndex {
+
+    private final int size;
+    private final int capacity;
+    private final int[] minTree;
+    private final int[] maxTree;
+    private final IntBinaryOperator comparator;
+
+    /**
+     * @param size number of indexed rows
+     * @param comparator compares values of two rows given by their indices
+     */
+    RangeMinMaxIndex(final int size, final IntBinaryOperator comparator) {
+        this(size, capacityFor(size), comparator);
+    }
+
+    private RangeMinMaxIndex(final int size, final int capacity, final IntBinaryOperator comparator) {
+        this.size = size;
+        this.capacity = capacity;
+        this.comparator = comparator;
+        this.minTree = new int[2 * capacity];
+        this.maxTree = new int[2 * capacity];
+        for (int i = 0; i < size; i++) {
+            minTree[capacity + i] = i;
+            maxTree[capacity + i] = i;
+        }
+        for (int node = capacity - 1; node > 0; node--) {
+            update(node);
+        }
+    }
+
+    private RangeMinMaxIndex(final RangeMinMaxIndex index, final int size, final IntBinaryOperator comparator) {
+        this.size = size;
+        this.capacity = index.capacity;
+        this.comparator = comparator;
+        this.minTree = index.minTree;
+        this.maxTree = index.maxTree;
+    }
+
+    /**
+     * Indexes rows appended after the last indexed row. Must be called on the latest instance only.
+     * @param newSize number of rows including the appended ones
+     * @param newComparator compares values of two rows of the extended column
+     * @return index of the extended column
+     */
+    RangeMinMaxIndex append(final int newSize, final IntBinaryOperator newComparator) {
+        if (newSize > capacity) {
+            return new RangeMinMaxIndex(newSize, capacityFor(newSize), newComparator);
+        }
+        final RangeMinMaxIndex appended = new RangeMinMaxIndex(this, newSize, newComparator);
+        for (int i = size; i < newSize; i++) {
+            minTree[capacity + i] = i;
+            maxTree[capacity + i] = i;
+            for (int node = (capacity + i) >> 1; node > 0; node >>= 1) {
+                appended.update(node);
+            }
+        }
+        return appended;
+    }
+
+    @Override
+    public int minIndex(final int from, final int until) {
+        int result = from;
+        for (int low = from + capacity, high = until + capacity; low < high; low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                result = min(result, minTree[low++]);
+            }
+            if ((high & 1) == 1) {
+                result = min(result, minTree[--high]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int maxIndex(final int from, final int until) {
+        int result = from;
+        for (int low = from + capacity, high = until + capacity; low < high; low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                result = max(result, maxTree[low++]);
+            }
+            if ((high & 1) == 1) {
+                result = max(result, maxTree[--high]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Recalculates an inner node from its children, children covering only rows past {@code size} are ignored.
+     */
+    private void update(final int node) {
+        final int left = 2 * node, right = 2 * node + 1;
+        if (firstRow(right) < size) {
+            minTree[node] = min(minTree[left], minTree[right]);
+            maxTree[node] = max(maxTree[left], maxTree[right]);
+        } else {
+            minTree[node] = minTree[left];
+            maxTree[node] = maxTree[left];
+        }
+    }
+
+    /**
+     * @return index of the first row covered by a node
+     */
+    private int firstRow(final int node) {
+        int first = node;
+        while (first < capacity) {
+            first <<= 1;
+        }
+        return first - capacity;
+    }
+
+    private int min(final int left, final int right) {
+        return comparator.applyAsInt(right, left) < 0 ? right : left;
+    }
+
+    private int max(final int left, final int right) {
+        return comparator.applyAsInt(right, left) > 0 ? right : left;
+    }
+
+    private static int capacityFor(final int size) {
+        return Math.max(Integer.highestOneBit(Math.max(size, 1) * 2 - 1), 1);
+    }
+}
@@ -0,0 +1,41 @@
+package org.cryptodemo.dal;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Calendar granularity of pre-aggregated price buckets. Bucket boundaries follow the local calendar of the zone,
+ * the same way request windows are calculated.
+ */
+public enum RollupResolution {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS),
+    MONTH(ChronoUnit.MONTHS);
+
+    private final ChronoUnit unit;
+
+    RollupResolution(final ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * @return start of the bucket containing {@code timestamp}, in milliseconds since Unix Epoch
+     */
+    public long bucketStart(final long timestamp, final ZoneId zone) {
+        final ZonedDateTime dateTime = Instant.ofEpochMilli(timestamp).atZone(zone);
+        final ZonedDateTime start = unit == ChronoUnit.MONTHS
+                ? dateTime.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS)
+                : dateTime.truncatedTo(unit);
+        return start.toInstant().toEpochMilli();
+    }
+
+    /**
+     * @param bucketStart start of a bucket as returned by {@link #bucketStart(long, ZoneId)}
+     * @return start of the following bucket, in milliseconds since Unix Epoch
+     */
+    public long nextBucketStart(final long bucketStart, final ZoneId zone) {
+        return Instant.ofEpochMilli(bucketStart).atZone(zone).plus(1, unit).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,117 @@
+package org.cryptodemo.dal;
+
+/**
+ * Lowest and highest price of a time window sliding forward over a {@link PriceSeries}. Two monotonic deques keep the
+ * rows of the window which may still become its minimum or maximum: a row is dropped from the back of a deque once a
+ * newer row has a price at least as low (or high), and from the front once it leaves the window. Each row enters and
+ * leaves a deque at most once, so sliding the window over the whole series takes {@code O(n)} in total.
+ * <p>
+ * Rows skipped by a window jumping past them entirely are not read at all.
+ */
+public final class SlidingMinMax {
+
+    private final PriceSeries series;
+    private final IndexDeque minRows = new IndexDeque();
+    private final IndexDeque maxRows = new IndexDeque();
+    /** Index of the first row not added to the deques yet. */
+    private int next;
+
+    public SlidingMinMax(final PriceSeries series) {
+        this.series = series;
+    }
+
+    /**
+     * Moves the window to the rows with timestamps between {@code from} and {@code until} (both inclusive). Neither
+     * end may be lower than in the previous call.
+     * @return true if the window has rows
+     */
+    public boolean moveTo(final long from, final long until) {
+        if (next < series.size() && series.timestamp(next) < from) {
+            // all rows added so far are older than the window too
+            minRows.clear();
+            maxRows.clear();
+            next = series.fromIndex(from);
+        }
+        for (; next < series.size() && series.timestamp(next) <= until; next++) {
+            final long price = series.unscaledPrice(next);
+            while (!minRows.isEmpty() && series.unscaledPrice(minRows.last()) >= price) {
+                minRows.removeLast();
+            }
+            minRows.addLast(next);
+            while (!maxRows.isEmpty() && series.unscaledPrice(maxRows.last()) <= price) {
+                maxRows.removeLast();
+            }
+            maxRows.addLast(next);
+        }
+        while (!minRows.isEmpty() && series.timestamp(minRows.first()) < from) {
+            minRows.removeFirst();
+        }
+        while (!maxRows.isEmpty() && series.timestamp(maxRows.first()) < from) {
+            maxRows.removeFirst();
+        }
+        return !minRows.isEmpty();
+    }
+
+    /**
+     * @return index of the latest row with the lowest price of the window, the window must have rows
+     */
+    public int minIndex() {
+        return minRows.first();
+    }
+
+    /**
+     * @return index of the latest row with the highest price of the window, the window must have rows
+     */
+    public int maxIndex() {
+        return maxRows.first();
+    }
+
+    /**
+     * Growable ring buffer of row indices.
+     */
+    private static final class IndexDeque {
+
+        private int[] elements = new int[16];
+        private int head;
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int first() {
+            return elements[head];
+        }
+
+        int last() {
+            return elements[(head + size - 1) & (elements.length - 1)];
+        }
+
+        void addLast(final int element) {
+            if (size == elements.length) {
+                final int[] grown = new int[elements.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = elements[(head + i) & (elements.length - 1)];
+                }
+                elements = grown;
+                head = 0;
+            }
+            elements[(head + size) & (elements.length - 1)] = element;
+            size++;
+        }
+
+        void removeFirst() {
+            head = (head + 1) & (elements.length - 1);
+            size--;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Symbols which have price data, found by listing the data source at startup and on every {@link #refresh()}.
+ * In a sharded deployment only the symbols owned by this instance are registered. Lookups are answered from an
+ * immutable snapshot and never throw, so symbols without data are told apart without reading the data source.
+ */
+@Component
+public class SymbolRegistry implements InitializingBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SymbolRegistry.class);
+
+    private final CryptoRepository cryptoRepository;
+    private final ShardRouter shardRouter;
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of());
+
+    public SymbolRegistry(final CryptoRepository cryptoRepository, final ShardRouter shardRouter) {
+        this.cryptoRepository = cryptoRepository;
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        refresh();
+    }
+
+    /**
+     * Lists the data source again. Symbols are kept when the data source can not be listed.
+     * @return {@code true} if symbols were added or removed
+     */
+    public synchronized boolean refresh() {
+        final Set<String> names;
+        try {
+            names = cryptoRepository.findSymbols();
+        } catch (IOException | SQLException | RuntimeException e) {
+            LOG.warn("Failed to list symbols of the data source", e);
+            return false;
+        }
+        final Map<String, CryptoName> byName = new HashMap<>();
+        for (String name : names) {
+            if (!shardRouter.isLocal(name)) {
+                continue;
+            }
+            byName.put(name.toUpperCase(Locale.ROOT), CryptoName.of(name));
+        }
+        if (byName.equals(snapshot.byName)) {
+            return false;
+        }
+        snapshot = new Snapshot(byName.values().stream().sorted().toList(), Map.copyOf(byName));
+        LOG.info("Symbols with price data: {}", snapshot.symbols);
+        return true;
+    }
+
+    /**
+     * @return symbols with price data sorted by name
+     */
+    public List<CryptoName> symbols() {
+        return snapshot.symbols;
+    }
+
+    /**
+     * @param name symbol name in any case
+     * @return symbol with price data, empty if there is none with the name
+     */
+    public Optional<CryptoName> find(final String name) {
+        return Optional.ofNullable(snapshot.byName.get(name.toUpperCase(Locale.ROOT)));
+    }
+
+    public boolean contains(final CryptoName cryptoName) {
+        return snapshot.byName.get(cryptoName.name().toUpperCase(Locale.ROOT)) == cryptoName;
+    }
+
+    private record Snapshot(List<CryptoName> symbols, Map<String, CryptoName> byName) {
+    }
+}
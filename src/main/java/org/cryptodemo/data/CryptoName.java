@@ -1,10 +1,78 @@
 package org.cryptodemo.data;
 
-public enum CryptoName {
-    BTC,
-    DOGE,
-    ETH,
-    LTC,
-    XRP,
-    NEW_UNSUPPORTED
+import com.fasterxml.jackson.annotation.JsonValue;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Symbol of a crypto. Symbols of existing price data are interned: there is a single instance per symbol with a
+ * numeric id assigned in the order the symbols were first seen, so they are compared by identity and hashed by id.
+ * Names requested by clients which have no data are represented by {@link #unknown(String)} instances, which are
+ * not interned and equal to no other instance.
+ */
+@Schema(type = "string", example = "BTC")
+public final class CryptoName implements Comparable<CryptoName> {
+
+    public static final int UNKNOWN_ID = -1;
+
+    private static final Map<String, CryptoName> INTERNED = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final String name;
+    private final int id;
+
+    private CryptoName(final String name, final int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    /**
+     * @return interned instance of the symbol, created on first call
+     */
+    public static CryptoName of(final String name) {
+        return INTERNED.computeIfAbsent(name, symbol -> new CryptoName(symbol, NEXT_ID.getAndIncrement()));
+    }
+
+    /**
+     * @return symbol without data, its name upper-cased like symbols of the price files
+     */
+    public static CryptoName unknown(final String name) {
+        return new CryptoName(name.toUpperCase(Locale.ROOT), UNKNOWN_ID);
+    }
+
+    @JsonValue
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return id of an interned symbol, {@link #UNKNOWN_ID} otherwise
+     */
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id == UNKNOWN_ID ? name.hashCode() : id;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other;
+    }
+
+    @Override
+    public int compareTo(final CryptoName other) {
+        return name.compareTo(other.name);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
 }
@@ -0,0 +1,212 @@
+package org.cryptodemo.data;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point decimal price: {@code unscaled * 10^-scale}. Prices of one crypto share the same scale, so they are
+ * compared and stored as plain {@code long} values. A price is written to JSON as a plain decimal number without
+ * trailing zeros and read from its decimal text, so other instances can read responses without losing digits.
+ */
+@Schema(type = "number", example = "0.7686")
+@JsonSerialize(using = Price.Serializer.class)
+@JsonDeserialize(using = Price.Deserializer.class)
+public record Price(long unscaled, int scale) implements Comparable<Price> {
+
+    /**
+     * Largest supported number of decimal places.
+     */
+    public static final int MAX_SCALE = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    public Price {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Unsupported price scale: " + scale);
+        }
+    }
+
+    /**
+     * Parses a decimal number such as {@code 46813.21}. Plain notation is parsed without creating a
+     * {@link BigDecimal}, other notations fall back to it.
+     * @throws NumberFormatException when the value is not a number or does not fit the fixed-point range
+     */
+    public static Price parse(final String value) {
+        long unscaled = 0;
+        int scale = -1;
+        int digits = 0;
+        int i = 0;
+        final boolean negative = !value.isEmpty() && value.charAt(0) == '-';
+        if (negative || (!value.isEmpty() && value.charAt(0) == '+')) {
+            i++;
+        }
+        for (; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_SCALE) {
+                    return of(new BigDecimal(value));
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return of(new BigDecimal(value));
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Not a price: " + value);
+        }
+        return new Price(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * @throws NumberFormatException when the value does not fit the fixed-point range
+     */
+    public static Price of(final BigDecimal value) {
+        try {
+            final BigDecimal normalized = value.scale() < 0 ? value.setScale(0) : value;
+            return new Price(normalized.unscaledValue().longValueExact(), normalized.scale());
+        } catch (ArithmeticException | IllegalArgumentException e) {
+            throw new NumberFormatException("Price out of range: " + value);
+        }
+    }
+
+    /**
+     * Converts an unscaled value to a greater or equal scale.
+     * @throws ArithmeticException when the result does not fit into {@code long}
+     */
+    public static long rescale(final long unscaled, final int fromScale, final int toScale) {
+        if (toScale - fromScale > MAX_SCALE) {
+            throw new ArithmeticException("Scale difference too large");
+        }
+        return Math.multiplyExact(unscaled, POWERS_OF_TEN[toScale - fromScale]);
+    }
+
+    /**
+     * Converts an unscaled value to a smaller or equal scale, rounded half up.
+     */
+    public static long round(final long unscaled, final int fromScale, final int toScale) {
+        final long divisor = POWERS_OF_TEN[fromScale - toScale];
+        final long quotient = unscaled / divisor;
+        final long remainder = Math.abs(unscaled % divisor);
+        if (remainder != 0 && remainder >= divisor - remainder) {
+            return quotient + (unscaled < 0 ? -1 : 1);
+        }
+        return quotient;
+    }
+
+    /**
+     * Calculates {@code (max - min) / min} at the greater scale of both prices, rounded half up.
+     * @return normalized range or {@code null} when {@code min} is zero
+     */
+    public static Price normalizedRange(final Price min, final Price max) {
+        if (min.unscaled == 0) {
+            return null;
+        }
+        final int scale = Math.max(min.scale, max.scale);
+        try {
+            final long minValue = rescale(min.unscaled, min.scale, scale);
+            final long maxValue = rescale(max.unscaled, max.scale, scale);
+            final long numerator = Math.multiplyExact(Math.subtractExact(maxValue, minValue), POWERS_OF_TEN[scale]);
+            long quotient = numerator / minValue;
+            final long remainder = Math.abs(numerator % minValue);
+            if (remainder != 0 && remainder >= Math.abs(minValue) - remainder) {
+                quotient += (numerator < 0) == (minValue < 0) ? 1 : -1;
+            }
+            return new Price(quotient, scale);
+        } catch (ArithmeticException e) {
+            return of(max.toBigDecimal().subtract(min.toBigDecimal()).divide(min.toBigDecimal(), scale, RoundingMode.HALF_UP));
+        }
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * @return decimal representation without exponent and without trailing zeros
+     */
+    public String toPlainString() {
+        long value = unscaled;
+        int digitsAfterPoint = scale;
+        while (digitsAfterPoint > 0 && value % 10 == 0) {
+            value /= 10;
+            digitsAfterPoint--;
+        }
+        if (digitsAfterPoint == 0) {
+            return Long.toString(value);
+        }
+        if (value == Long.MIN_VALUE) {
+            return BigDecimal.valueOf(value, digitsAfterPoint).toPlainString();
+        }
+        final String digits = Long.toString(Math.abs(value));
+        final StringBuilder result = new StringBuilder(digits.length() + digitsAfterPoint + 3);
+        if (value < 0) {
+            result.append('-');
+        }
+        if (digits.length() <= digitsAfterPoint) {
+            result.append("0.");
+            result.append("0".repeat(digitsAfterPoint - digits.length()));
+            result.append(digits);
+        } else {
+            result.append(digits, 0, digits.length() - digitsAfterPoint);
+            result.append('.');
+            result.append(digits, digits.length() - digitsAfterPoint, digits.length());
+        }
+        return result.toString();
+    }
+
+    @Override
+    public int compareTo(final Price other) {
+        if (scale == other.scale) {
+            return Long.compare(unscaled, other.unscaled);
+        }
+        final int commonScale = Math.max(scale, other.scale);
+        try {
+            return Long.compare(rescale(unscaled, scale, commonScale), rescale(other.unscaled, other.scale, commonScale));
+        } catch (ArithmeticException e) {
+            return toBigDecimal().compareTo(other.toBigDecimal());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString();
+    }
+
+    public static class Serializer extends JsonSerializer<Price> {
+
+        @Override
+        public void serialize(final Price price, final JsonGenerator generator, final SerializerProvider provider) throws IOException {
+            generator.writeNumber(price.toPlainString());
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<Price> {
+
+        @Override
+        public Price deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+            return parse(parser.getText());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.cryptodemo.data.dto;
+
+import org.cryptodemo.data.Price;
+
+/**
+ * Open/high/low/close prices of one interval.
+ * @param start Unix epoch milliseconds the interval starts at
+ * @param ticks number of prices in the interval
+ */
+public record Candle(
+        long start,
+        Price open,
+        Price high,
+        Price low,
+        Price close,
+        int ticks
+) {
+}
@@ -0,0 +1,39 @@
+package org.cryptodemo.data.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.cryptodemo.data.CryptoName;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Time window of a crypto to calculate statistics for, given either by {@code from} and {@code until} Unix epoch
+ * milliseconds or by {@code monthsBefore} like in {@code /crypto/pricesInfo/{cryptoName}}.
+ * @param extended whether {@link PriceStats#extended()} statistics are calculated, {@code false} if not given
+ */
+public record CryptoStatsQuery(
+        @NotNull CryptoName cryptoName,
+        @Nullable Long from,
+        @Nullable Long until,
+        @Nullable @Min(0) Integer monthsBefore,
+        @Nullable Boolean extended) {
+
+    @JsonCreator
+    public CryptoStatsQuery {
+    }
+
+    public CryptoStatsQuery(final CryptoName cryptoName, final Long from, final Long until, final Integer monthsBefore) {
+        this(cryptoName, from, until, monthsBefore, null);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "either from and until with from less than until, or monthsBefore must be given")
+    public boolean isWindowValid() {
+        return monthsBefore == null
+                ? from != null && until != null && from < until
+                : from == null && until == null;
+    }
+}
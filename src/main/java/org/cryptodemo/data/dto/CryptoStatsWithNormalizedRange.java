@@ -1,10 +1,11 @@
 package org.cryptodemo.data.dto;
 
+import org.cryptodemo.data.Price;
+
 import javax.annotation.Nullable;
-import java.math.BigDecimal;
 
 public record CryptoStatsWithNormalizedRange(
         CryptoTimeRangeStats crypto,
-        @Nullable BigDecimal normalizedRange
+        @Nullable Price normalizedRange
 ) {
 }
@@ -0,0 +1,12 @@
+package org.cryptodemo.data.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Crypto with the highest normalized range of one day.
+ */
+public record DailyTopCrypto(
+        LocalDate date,
+        CryptoStatsWithNormalizedRange top
+) {
+}
@@ -0,0 +1,30 @@
+package org.cryptodemo.data.dto;
+
+/**
+ * Statistics of all prices of a time window, calculated on request in addition to {@link PriceStats}.
+ * @param count number of prices
+ * @param mean arithmetic mean of the prices
+ * @param stddev population standard deviation of the prices
+ * @param twap time-weighted average price, each price holding until the next one
+ * @param quantiles approximate quantiles of the prices
+ */
+public record ExtendedPriceStats(
+        long count,
+        double mean,
+        double stddev,
+        double twap,
+        Quantiles quantiles
+) {
+
+    /**
+     * Quantiles of the prices, each within 0.5% of the exact price.
+     */
+    public record Quantiles(
+            double p5,
+            double p25,
+            double p50,
+            double p75,
+            double p95
+    ) {
+    }
+}
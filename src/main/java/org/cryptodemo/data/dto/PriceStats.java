@@ -1,11 +1,27 @@
 package org.cryptodemo.data.dto;
 
-import java.math.BigDecimal;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.cryptodemo.data.Price;
 
+import javax.annotation.Nullable;
+
+/**
+ * @param extended statistics of all prices of the window, only calculated on request and left out of JSON otherwise
+ */
 public record PriceStats(
-        BigDecimal oldest,
-        BigDecimal newest,
-        BigDecimal min,
-        BigDecimal max
+        Price oldest,
+        Price newest,
+        Price min,
+        Price max,
+        @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable ExtendedPriceStats extended
 ) {
+
+    @JsonCreator
+    public PriceStats {
+    }
+
+    public PriceStats(final Price oldest, final Price newest, final Price min, final Price max) {
+        this(oldest, newest, min, max, null);
+    }
 }
@@ -0,0 +1,18 @@
+package org.cryptodemo.data.dto;
+
+import org.cryptodemo.data.Price;
+
+import javax.annotation.Nullable;
+
+/**
+ * Lowest and highest price of a window ending at a sample time.
+ * @param timestamp Unix epoch milliseconds the window ends at (inclusive)
+ * @param normalizedRange {@code (max-min)/min}, {@code null} if the lowest price is zero
+ */
+public record RollingRange(
+        long timestamp,
+        Price min,
+        Price max,
+        @Nullable Price normalizedRange
+) {
+}
@@ -1,12 +1,11 @@
 package org.cryptodemo.data.entity;
 
 import lombok.NonNull;
-
-import java.math.BigDecimal;
+import org.cryptodemo.data.Price;
 
 public record CryptoRecord(
         long timestamp,
         String symbol,
-        @NonNull BigDecimal price
+        @NonNull Price price
 ) {
 }
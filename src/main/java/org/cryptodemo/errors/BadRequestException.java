@@ -0,0 +1,8 @@
+package org.cryptodemo.errors;
+
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(final String message) {
+        super(message);
+    }
+}
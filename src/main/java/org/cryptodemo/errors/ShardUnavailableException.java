@@ -0,0 +1,8 @@
+package org.cryptodemo.errors;
+
+public class ShardUnavailableException extends RuntimeException {
+
+    public ShardUnavailableException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,8 @@
+package org.cryptodemo.errors;
+
+public class TooManyRequestsException extends RuntimeException {
+
+    public TooManyRequestsException(final String message) {
+        super(message);
+    }
+}
@@ -1,73 +1,221 @@
 package org.cryptodemo.services;
 
 import org.cryptodemo.dal.CryptoRepository;
+import org.cryptodemo.dal.PriceCursor;
+import org.cryptodemo.dal.PriceSeries;
+import org.cryptodemo.dal.SlidingMinMax;
+import org.cryptodemo.dal.SymbolRegistry;
 import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.Price;
+import org.cryptodemo.data.dto.Candle;
+import org.cryptodemo.data.dto.CryptoStatsQuery;
 import org.cryptodemo.data.dto.CryptoStatsWithNormalizedRange;
 import org.cryptodemo.data.dto.CryptoTimeRangeStats;
+import org.cryptodemo.data.dto.DailyTopCrypto;
 import org.cryptodemo.data.dto.PriceStats;
-import org.cryptodemo.data.entity.CryptoRecord;
+import org.cryptodemo.data.dto.RollingRange;
 import org.cryptodemo.errors.DataNotFoundException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static java.util.Comparator.comparing;
+import static org.cryptodemo.time.TimeUtils.alignDown;
 import static org.cryptodemo.time.TimeUtils.getUnixEpochMillisNMonthsBack;
 
 @Service
 public class CryptoService {
 
     private final CryptoRepository cryptoRepository;
+    private final SymbolRegistry symbolRegistry;
+    private final ExecutorService statsExecutor;
+    private final CryptoStatsCache statsCache;
+    private final DailyLeaderboard dailyLeaderboard;
+    private final ExtendedStatsCalculator extendedStatsCalculator;
+    private final long symbolTimeoutMillis;
 
-    public CryptoService(final CryptoRepository cryptoRepository) {
+    public CryptoService(final CryptoRepository cryptoRepository,
+                         final SymbolRegistry symbolRegistry,
+                         @Qualifier("cryptoStatsExecutor") final ExecutorService statsExecutor,
+                         final CryptoStatsCache statsCache,
+                         final DailyLeaderboard dailyLeaderboard,
+                         final ExtendedStatsCalculator extendedStatsCalculator,
+                         @Value("${crypto.stats.symbol-timeout-ms}") final long symbolTimeoutMillis) {
         this.cryptoRepository = cryptoRepository;
+        this.symbolRegistry = symbolRegistry;
+        this.statsExecutor = statsExecutor;
+        this.statsCache = statsCache;
+        this.dailyLeaderboard = dailyLeaderboard;
+        this.extendedStatsCalculator = extendedStatsCalculator;
+        this.symbolTimeoutMillis = symbolTimeoutMillis;
     }
 
     /**
      * Calculates statistics for given crypto for a month period that starts {@code monthsBack + 1} months back
      * from today and ends {@code monthsBack} months back from today. If {@code monthsBack} is 0, the stats are
-     * calculated for the last month.
+     * calculated for the last month. Both ends of the period are rounded down to the cache window granularity.
      * @param cryptoName to get statistics for
      * @param monthsBack allows to move the time window into the past by given number of months
      * @return time window statistics for the crypto
      */
     public CryptoTimeRangeStats getCryptoInfo(final CryptoName cryptoName, final int monthsBack) {
-        final long unixEpochMillisFrom = getUnixEpochMillisNMonthsBack(monthsBack + 1);
-        final long unixEpochMillisUntil = getUnixEpochMillisNMonthsBack(monthsBack);
-        return getCryptoInfo(cryptoName, unixEpochMillisFrom, unixEpochMillisUntil);
+        return getCryptoInfo(cryptoName, monthsBack, false);
     }
 
     /**
-     * Calculates statistics for all cryptos for a period between {@code unixEpochMillisFrom} and {@code unixEpochMillisUntil}.
+     * Calculates statistics for given crypto like {@link #getCryptoInfo(CryptoName, int)}.
+     * @param extended whether {@link PriceStats#extended()} statistics of all prices of the window are calculated
+     * @return time window statistics for the crypto
+     */
+    public CryptoTimeRangeStats getCryptoInfo(final CryptoName cryptoName, final int monthsBack, final boolean extended) {
+        final long unixEpochMillisFrom = statsCache.align(getUnixEpochMillisNMonthsBack(monthsBack + 1));
+        final long unixEpochMillisUntil = statsCache.align(getUnixEpochMillisNMonthsBack(monthsBack));
+        return getCryptoInfo(cryptoName, unixEpochMillisFrom, unixEpochMillisUntil, extended);
+    }
+
+    /**
+     * Calculates statistics for a batch of crypto time windows. Queries are grouped by crypto, so the price history
+     * of each crypto is looked up once for all of its windows. Both ends of each window are rounded down to the cache
+     * window granularity.
+     * @param queries time windows, see {@link CryptoStatsQuery}
+     * @return statistics in the order of the queries
+     * @throws DataNotFoundException if there is no data for one of the cryptos
+     */
+    public List<CryptoTimeRangeStats> getCryptoInfos(final List<CryptoStatsQuery> queries) {
+        final Map<CryptoName, List<Integer>> queriesByCrypto = IntStream.range(0, queries.size()).boxed()
+                .collect(Collectors.groupingBy(index -> queries.get(index).cryptoName(), LinkedHashMap::new, Collectors.toList()));
+        final CryptoTimeRangeStats[] results = new CryptoTimeRangeStats[queries.size()];
+        queriesByCrypto.forEach((cryptoName, indices) -> {
+            // the version is assigned when the history is first read, so it is taken only after the lookup
+            final PriceSeries series = readPriceSeries(cryptoName);
+            final long dataVersion = cryptoRepository.getDataVersion(cryptoName);
+            for (int index : indices) {
+                final CryptoStatsQuery query = queries.get(index);
+                final long from = statsCache.align(query.monthsBefore() == null
+                        ? query.from() : getUnixEpochMillisNMonthsBack(query.monthsBefore() + 1));
+                final long until = statsCache.align(query.monthsBefore() == null
+                        ? query.until() : getUnixEpochMillisNMonthsBack(query.monthsBefore()));
+                final boolean extended = Boolean.TRUE.equals(query.extended());
+                results[index] = statsCache.get(cryptoName, from, until, extended, dataVersion,
+                        () -> calculateCryptoInfo(cryptoName, series, from, until, extended));
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Aggregates prices between {@code unixEpochMillisFrom} and {@code unixEpochMillisUntil} (both inclusive) into
+     * candles of {@code intervalMillis} aligned to the Unix Epoch, in a single pass over the price series. Intervals
+     * without prices have no candle.
+     * @param intervalMillis length of a candle interval, must be positive
+     * @return candles sorted by start in ascending order
+     * @throws DataNotFoundException if there is no data for the crypto
+     */
+    public List<Candle> getCandles(final CryptoName cryptoName, final long unixEpochMillisFrom,
+                                   final long unixEpochMillisUntil, final long intervalMillis) {
+        final PriceSeries series = readPriceSeries(cryptoName);
+        final int scale = series.scale();
+        final int until = series.untilIndex(unixEpochMillisUntil);
+        final List<Candle> candles = new ArrayList<>();
+        int i = series.fromIndex(unixEpochMillisFrom);
+        while (i < until) {
+            final long start = alignDown(series.timestamp(i), intervalMillis);
+            final long end = start + intervalMillis;
+            final int first = i;
+            long high = series.unscaledPrice(i);
+            long low = high;
+            for (i++; i < until && series.timestamp(i) < end; i++) {
+                final long price = series.unscaledPrice(i);
+                high = Math.max(high, price);
+                low = Math.min(low, price);
+            }
+            candles.add(new Candle(start, series.price(first), new Price(high, scale), new Price(low, scale),
+                    series.price(i - 1), i - first));
+        }
+        return candles;
+    }
+
+    /**
+     * Calculates the lowest and highest price of a window of {@code windowMillis} ending at each multiple of
+     * {@code stepMillis} (aligned to the Unix Epoch) between {@code unixEpochMillisFrom} and
+     * {@code unixEpochMillisUntil}, in a single pass over the price series with {@link SlidingMinMax}. A window
+     * ending at {@code t} covers prices between {@code t - windowMillis} and {@code t} (both inclusive). Sample times
+     * whose window has no prices are left out.
+     * @param windowMillis length of the window, must not be negative
+     * @param stepMillis distance between sample times, must be positive
+     * @return ranges sorted by sample time in ascending order
+     * @throws DataNotFoundException if there is no data for the crypto
+     */
+    public List<RollingRange> getRollingRanges(final CryptoName cryptoName, final long unixEpochMillisFrom,
+                                               final long unixEpochMillisUntil, final long windowMillis,
+                                               final long stepMillis) {
+        final PriceSeries series = readPriceSeries(cryptoName);
+        final SlidingMinMax window = new SlidingMinMax(series);
+        final List<RollingRange> ranges = new ArrayList<>();
+        final long first = alignDown(unixEpochMillisFrom, stepMillis);
+        for (long t = first < unixEpochMillisFrom ? first + stepMillis : first; t <= unixEpochMillisUntil; t += stepMillis) {
+            if (window.moveTo(t - windowMillis, t)) {
+                final Price min = series.price(window.minIndex());
+                final Price max = series.price(window.maxIndex());
+                ranges.add(new RollingRange(t, min, max, Price.normalizedRange(min, max)));
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Opens a cursor over price records of given crypto between {@code unixEpochMillisFrom} and
+     * {@code unixEpochMillisUntil} (both inclusive).
+     * @return cursor in ascending timestamp order
+     * @throws DataNotFoundException if there is no data for the crypto
+     */
+    public PriceCursor getRecords(final CryptoName cryptoName, final long unixEpochMillisFrom,
+                                  final long unixEpochMillisUntil) {
+        requireData(cryptoName);
+        try {
+            return cryptoRepository.getCryptoRecordsCursor(cryptoName, unixEpochMillisFrom, unixEpochMillisUntil);
+        } catch (SQLException e) {
+            throw readFailure(cryptoName, e);
+        }
+    }
+
+    /**
+     * Calculates statistics for all cryptos with price data for a period between {@code unixEpochMillisFrom} and {@code unixEpochMillisUntil}.
      * Additionally, a normalized range value is calculated for each crypto as (max-min)/min over the period.
+     * Cryptos are processed in parallel, a crypto whose statistics are not ready within the configured timeout is
+     * left out of the result. Both ends of the period are rounded down to the cache window granularity.
      * @param unixEpochMillisFrom starting point for stats calculation, must be less than {@code unixEpochMillisUntil}
      * @param unixEpochMillisUntil ending point for stats calculation, must be greater than {@code unixEpochMillisFrom}
      * @return list of statistics for all available cryptos ordered by normalized range value in descending order.
      */
     public List<CryptoStatsWithNormalizedRange> getTopCryptos(final long unixEpochMillisFrom, final long unixEpochMillisUntil) {
-        return Stream.of(CryptoName.values())
-                .map(cryptoName -> {
-                    try {
-                        return getCryptoInfo(cryptoName, unixEpochMillisFrom, unixEpochMillisUntil);
-                    } catch (RuntimeException e) {
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
+        final long from = statsCache.align(unixEpochMillisFrom);
+        final long until = statsCache.align(unixEpochMillisUntil);
+        final List<Future<CryptoTimeRangeStats>> futures = symbolRegistry.symbols().stream()
+                .map(cryptoName -> statsExecutor.submit(() -> getCryptoInfo(cryptoName, from, until, false)))
+                .collect(Collectors.toList());
+        return awaitCompleted(futures).stream()
                 .map(stats -> new CryptoStatsWithNormalizedRange(stats,
-                        stats.priceStats() == null || stats.priceStats().min().equals(BigDecimal.ZERO)
+                        stats.priceStats() == null
                                 ? null
-                                : (stats.priceStats().max().subtract(stats.priceStats().min())
-                                .divide(stats.priceStats().min(), RoundingMode.HALF_UP))))
+                                : Price.normalizedRange(stats.priceStats().min(), stats.priceStats().max())))
                 .filter(statsWithRange -> statsWithRange.normalizedRange() != null)
                 .sorted(comparing(CryptoStatsWithNormalizedRange::normalizedRange).reversed())
                 .collect(Collectors.toList());
@@ -75,48 +223,123 @@ public class CryptoService {
 
     /**
      * Finds crypto with highest normalized range value calculated for the given date (between start of the
-     * specified day and start of the next day).
+     * specified day and start of the next day). The answer is looked up in the {@link DailyLeaderboard}.
      * @param date for finding crypto with highest normalized range value
      * @return optional of stats for the crypto or {@code Optional.empty()} if no data for the given date is available
      */
     public Optional<CryptoStatsWithNormalizedRange> getTopCrypto(final LocalDate date) {
-        final long unixEpochMillisFrom = date.atStartOfDay().atZone(ZoneId.systemDefault()).toInstant().getEpochSecond() * 1000;
-        final long unixEpochMillisUntil = date.atStartOfDay().plusDays(1).atZone(ZoneId.systemDefault()).toInstant().getEpochSecond() * 1000;
-        final List<CryptoStatsWithNormalizedRange> topCryptos = getTopCryptos(unixEpochMillisFrom, unixEpochMillisUntil);
-        return topCryptos.isEmpty() ? Optional.empty() : Optional.of(topCryptos.get(0));
+        return dailyLeaderboard.top(date);
     }
 
-    private CryptoTimeRangeStats getCryptoInfo(final CryptoName cryptoName, final long from, final long until) {
-        try {
-            final List<CryptoRecord> records = cryptoRepository.getCryptoRecordsTimestamps(cryptoName, from, until);
-            if (records.isEmpty()) {
-                return new CryptoTimeRangeStats(cryptoName, null, null, null);
-            }
-            BigDecimal minPrice = records.get(0).price(), maxPrice = minPrice;
-            for (CryptoRecord record : records) {
-                final BigDecimal price = record.price();
-                if (price.compareTo(maxPrice) > 0) {
-                    maxPrice = price;
-                } else if (price.compareTo(minPrice) < 0) {
-                    minPrice = price;
-                }
+    /**
+     * Finds crypto with highest normalized range value for each day between {@code from} and {@code until}
+     * (both inclusive), see {@link #getTopCrypto(LocalDate)}.
+     * @return top crypto of each day with data, sorted by date in ascending order
+     */
+    public List<DailyTopCrypto> getTopCryptos(final LocalDate from, final LocalDate until) {
+        return dailyLeaderboard.topByDay(from, until);
+    }
+
+    /**
+     * @return cryptos with price data of this instance
+     */
+    public List<CryptoName> getCryptoNames() {
+        return symbolRegistry.symbols();
+    }
+
+    /**
+     * Returns the version of the price history of given crypto without reading it, see
+     * {@link CryptoRepository#getDataVersion(CryptoName)}.
+     */
+    public long getDataVersion(final CryptoName cryptoName) {
+        return cryptoRepository.getDataVersion(cryptoName);
+    }
+
+    /**
+     * Returns when the price history of given crypto last changed without reading it, see
+     * {@link CryptoRepository#getDataModified(CryptoName)}.
+     */
+    public long getDataModified(final CryptoName cryptoName) {
+        return cryptoRepository.getDataModified(cryptoName);
+    }
+
+    private List<CryptoTimeRangeStats> awaitCompleted(final List<Future<CryptoTimeRangeStats>> futures) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(symbolTimeoutMillis);
+        final List<CryptoTimeRangeStats> completed = new ArrayList<>(futures.size());
+        for (Future<CryptoTimeRangeStats> future : futures) {
+            try {
+                completed.add(future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException e) {
+                // no data or read error for the crypto, it is not ranked
+            } catch (TimeoutException e) {
+                future.cancel(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(remaining -> remaining.cancel(true));
+                break;
             }
-            final CryptoRecord oldest = records.get(records.size() - 1);
-            final CryptoRecord newest = records.get(0);
-            return new CryptoTimeRangeStats(cryptoName,
-                    oldest.timestamp(),
-                    newest.timestamp(),
-                    new PriceStats(
-                            oldest.price(),
-                            newest.price(),
-                            minPrice,
-                            maxPrice));
+        }
+        return completed;
+    }
+
+    private CryptoTimeRangeStats getCryptoInfo(final CryptoName cryptoName, final long from, final long until,
+                                               final boolean extended) {
+        final PriceSeries series = readPriceSeries(cryptoName);
+        return statsCache.get(cryptoName, from, until, extended, cryptoRepository.getDataVersion(cryptoName),
+                () -> calculateCryptoInfo(cryptoName, series, from, until, extended));
+    }
+
+    private CryptoTimeRangeStats calculateCryptoInfo(final CryptoName cryptoName, final PriceSeries series,
+                                                     final long from, final long until, final boolean extended) {
+        final CryptoTimeRangeStats stats = calculateCryptoInfo(cryptoName, series, from, until);
+        if (!extended || stats.priceStats() == null) {
+            return stats;
+        }
+        final PriceStats priceStats = stats.priceStats();
+        return new CryptoTimeRangeStats(cryptoName, stats.earliestTimestamp(), stats.latestTimestamp(),
+                new PriceStats(priceStats.oldest(), priceStats.newest(), priceStats.min(), priceStats.max(),
+                        extendedStatsCalculator.calculate(series, series.fromIndex(from), series.untilIndex(until))));
+    }
+
+    static CryptoTimeRangeStats calculateCryptoInfo(final CryptoName cryptoName, final PriceSeries series,
+                                                    final long from, final long until) {
+        final int fromIndex = series.fromIndex(from);
+        final int untilIndex = series.untilIndex(until);
+        if (fromIndex >= untilIndex) {
+            return new CryptoTimeRangeStats(cryptoName, null, null, null);
+        }
+        final int oldest = fromIndex;
+        final int newest = untilIndex - 1;
+        return new CryptoTimeRangeStats(cryptoName,
+                series.timestamp(oldest),
+                series.timestamp(newest),
+                new PriceStats(
+                        series.price(oldest),
+                        series.price(newest),
+                        series.price(series.minPriceIndex(fromIndex, untilIndex)),
+                        series.price(series.maxPriceIndex(fromIndex, untilIndex))));
+    }
+
+    private void requireData(final CryptoName cryptoName) {
+        if (!symbolRegistry.contains(cryptoName)) {
+            throw new DataNotFoundException("No data exists for " + cryptoName);
+        }
+    }
+
+    private PriceSeries readPriceSeries(final CryptoName cryptoName) {
+        requireData(cryptoName);
+        try {
+            return cryptoRepository.getPriceSeries(cryptoName);
         } catch (SQLException e) {
-            if (e.getMessage().contains("File not found")) {
-                throw new DataNotFoundException("No data exists for " + cryptoName);
-            } else {
-                throw new RuntimeException("Error reading data for " + cryptoName);
-            }
+            throw readFailure(cryptoName, e);
+        }
+    }
+
+    private static RuntimeException readFailure(final CryptoName cryptoName, final SQLException e) {
+        if (e.getMessage().contains("File not found")) {
+            return new DataNotFoundException("No data exists for " + cryptoName);
+        } else {
+            return new RuntimeException("Error reading data for " + cryptoName);
         }
     }
 }
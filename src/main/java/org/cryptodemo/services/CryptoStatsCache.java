@@ -0,0 +1,91 @@
+package org.cryptodemo.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.dto.CryptoTimeRangeStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.cryptodemo.time.TimeUtils.alignDown;
+
+/**
+ * Cache of time window statistics of a single crypto. Windows are aligned to the configured granularity, so requests
+ * made within the same interval share results. Entries are keyed by the data version of the crypto and are not used
+ * anymore once its price history changes.
+ * <p>
+ * Windows ending before the current interval can not change without a new data version and are only evicted by
+ * size. Windows reaching into the current interval additionally expire after the configured time.
+ * <p>
+ * Hits, misses and evictions are published as {@code cache.*} metrics of the caches {@code crypto.stats.past} and
+ * {@code crypto.stats.recent}.
+ */
+@Component
+public class CryptoStatsCache implements MeterBinder {
+
+    private final long windowGranularityMillis;
+    private final Cache<StatsKey, CryptoTimeRangeStats> pastWindows;
+    private final Cache<StatsKey, CryptoTimeRangeStats> recentWindows;
+
+    public CryptoStatsCache(@Value("${crypto.cache.window-granularity-ms}") final long windowGranularityMillis,
+                            @Value("${crypto.cache.max-size}") final long maxSize,
+                            @Value("${crypto.cache.recent-ttl-ms}") final long recentTtlMillis) {
+        this.windowGranularityMillis = windowGranularityMillis;
+        this.pastWindows = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        this.recentWindows = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(recentTtlMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return start of the interval containing {@code unixEpochMillis}
+     */
+    public long align(final long unixEpochMillis) {
+        return alignDown(unixEpochMillis, windowGranularityMillis);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, pastWindows, "crypto.stats.past");
+        GuavaCacheMetrics.monitor(registry, recentWindows, "crypto.stats.recent");
+    }
+
+    /**
+     * Returns cached statistics of an aligned window or calculates them. Concurrent requests for the same window
+     * wait for a single calculation. Exceptions are not cached.
+     * @param extended whether the statistics include extended statistics
+     * @param dataVersion version of the price history the statistics are calculated from
+     * @param calculation calculates the statistics on a cache miss
+     */
+    public CryptoTimeRangeStats get(final CryptoName cryptoName, final long from, final long until,
+                                    final boolean extended, final long dataVersion,
+                                    final Supplier<CryptoTimeRangeStats> calculation) {
+        final StatsKey key = new StatsKey(cryptoName, from, until, extended, dataVersion);
+        final Cache<StatsKey, CryptoTimeRangeStats> cache =
+                until < align(System.currentTimeMillis()) ? pastWindows : recentWindows;
+        try {
+            return cache.get(key, calculation::get);
+        } catch (UncheckedExecutionException | ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private record StatsKey(CryptoName cryptoName, long from, long until, boolean extended, long dataVersion) {
+    }
+}
@@ -0,0 +1,216 @@
+package org.cryptodemo.services;
+
+import org.cryptodemo.dal.CryptoRepository;
+import org.cryptodemo.dal.PriceSeries;
+import org.cryptodemo.dal.SymbolRegistry;
+import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.Price;
+import org.cryptodemo.data.dto.CryptoStatsWithNormalizedRange;
+import org.cryptodemo.data.dto.CryptoTimeRangeStats;
+import org.cryptodemo.data.dto.DailyTopCrypto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Ranking of all cryptos with price data by normalized range per day, a day being the period between its start and
+ * the start of the next day (both inclusive) in the system time zone. The ranking is built for all days at startup.
+ * When the data version of a crypto changes, only the days touched by rows appended since the last update are
+ * calculated again; a series which was rebuilt or reloaded is calculated again as a whole.
+ * <p>
+ * Queries are answered from an immutable snapshot. Each query first compares the data versions of the snapshot with
+ * the repository and brings the snapshot up to date if needed. A crypto whose price series can not be read keeps the
+ * days calculated before and is read again once its data version changes, so queries are not held up by reading a
+ * broken series over and over.
+ */
+@Component
+public class DailyLeaderboard implements InitializingBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DailyLeaderboard.class);
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final CryptoRepository cryptoRepository;
+    private final SymbolRegistry symbolRegistry;
+    /** Days of each crypto, only accessed while holding the lock of the leaderboard. */
+    private final Map<CryptoName, SymbolDays> symbolDays = new TreeMap<>();
+    /** Data versions of cryptos whose series failed to be read, only accessed while holding the lock. */
+    private final Map<CryptoName, Long> failedVersions = new HashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), new TreeMap<>());
+
+    public DailyLeaderboard(final CryptoRepository cryptoRepository, final SymbolRegistry symbolRegistry) {
+        this.cryptoRepository = cryptoRepository;
+        this.symbolRegistry = symbolRegistry;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        update();
+    }
+
+    /**
+     * @return stats of the crypto with the highest normalized range of the day, empty if no crypto has data for it
+     */
+    public Optional<CryptoStatsWithNormalizedRange> top(final LocalDate date) {
+        final List<CryptoStatsWithNormalizedRange> ranking = current().rankings.get(date);
+        return ranking == null ? Optional.empty() : Optional.of(ranking.get(0));
+    }
+
+    /**
+     * @param from first day (inclusive)
+     * @param until last day (inclusive)
+     * @return crypto with the highest normalized range of each day with data, sorted by date in ascending order
+     */
+    public List<DailyTopCrypto> topByDay(final LocalDate from, final LocalDate until) {
+        return current().rankings.subMap(from, true, until, true).entrySet().stream()
+                .map(day -> new DailyTopCrypto(day.getKey(), day.getValue().get(0)))
+                .toList();
+    }
+
+    private Snapshot current() {
+        final Snapshot current = snapshot;
+        final List<CryptoName> symbols = symbolRegistry.symbols();
+        if (current.dataVersions.size() == symbols.size() && symbols.stream().allMatch(cryptoName ->
+                Objects.equals(current.dataVersions.get(cryptoName), cryptoRepository.getDataVersion(cryptoName)))) {
+            return current;
+        }
+        return update();
+    }
+
+    private synchronized Snapshot update() {
+        final List<CryptoName> symbols = symbolRegistry.symbols();
+        final Set<LocalDate> changedDays = new HashSet<>();
+        symbolDays.entrySet().removeIf(entry -> {
+            if (symbols.contains(entry.getKey())) {
+                return false;
+            }
+            changedDays.addAll(entry.getValue().days.keySet());
+            return true;
+        });
+        failedVersions.keySet().retainAll(symbols);
+        final Map<CryptoName, Long> dataVersions = new HashMap<>();
+        for (CryptoName cryptoName : symbols) {
+            final long dataVersion = cryptoRepository.getDataVersion(cryptoName);
+            final SymbolDays previous = symbolDays.get(cryptoName);
+            if ((previous == null || previous.dataVersion != dataVersion)
+                    && !Objects.equals(failedVersions.get(cryptoName), dataVersion)) {
+                try {
+                    symbolDays.put(cryptoName, updateDays(cryptoName, previous, dataVersion, changedDays));
+                    failedVersions.remove(cryptoName);
+                } catch (SQLException | RuntimeException e) {
+                    // the version is recorded anyway, reading the crypto is tried again once its data version changes
+                    LOG.warn("Failed to rank days of {}", cryptoName, e);
+                    failedVersions.put(cryptoName, dataVersion);
+                }
+            }
+            dataVersions.put(cryptoName, dataVersion);
+        }
+        if (changedDays.isEmpty()) {
+            // e.g. a new data version without new rows or a crypto which failed to be read, the rankings are shared
+            snapshot = new Snapshot(dataVersions, snapshot.rankings);
+            return snapshot;
+        }
+        final NavigableMap<LocalDate, List<CryptoStatsWithNormalizedRange>> rankings = new TreeMap<>(snapshot.rankings);
+        for (LocalDate day : changedDays) {
+            final List<CryptoStatsWithNormalizedRange> ranking = symbolDays.values().stream()
+                    .map(days -> days.days.get(day))
+                    .filter(Objects::nonNull)
+                    .sorted(comparing(CryptoStatsWithNormalizedRange::normalizedRange).reversed())
+                    .toList();
+            if (ranking.isEmpty()) {
+                rankings.remove(day);
+            } else {
+                rankings.put(day, ranking);
+            }
+        }
+        snapshot = new Snapshot(dataVersions, rankings);
+        return snapshot;
+    }
+
+    /**
+     * Calculates the days of a crypto touched by rows added since {@code previous}, or all days if the series was
+     * rebuilt. A row at the start of a day also belongs to the previous day.
+     * @param changedDays collects days whose stats were removed, added or replaced
+     */
+    private SymbolDays updateDays(final CryptoName cryptoName, final SymbolDays previous, final long dataVersion,
+                                  final Set<LocalDate> changedDays) throws SQLException {
+        final PriceSeries series = cryptoRepository.getPriceSeries(cryptoName);
+        final NavigableMap<LocalDate, CryptoStatsWithNormalizedRange> days;
+        final int firstNewRow;
+        if (previous != null && previous.lineage == series.lineage() && previous.size <= series.size()) {
+            days = previous.days;
+            firstNewRow = previous.size;
+        } else {
+            days = new TreeMap<>();
+            firstNewRow = 0;
+            if (previous != null) {
+                changedDays.addAll(previous.days.keySet());
+            }
+        }
+        if (firstNewRow < series.size()) {
+            LocalDate day = dayOf(series.timestamp(firstNewRow) - 1);
+            final SortedMap<LocalDate, CryptoStatsWithNormalizedRange> replaced = days.tailMap(day);
+            changedDays.addAll(replaced.keySet());
+            replaced.clear();
+            while (true) {
+                final long dayStart = startOf(day);
+                final long nextDayStart = startOf(day.plusDays(1));
+                final CryptoTimeRangeStats stats = CryptoService.calculateCryptoInfo(cryptoName, series, dayStart, nextDayStart);
+                if (stats.priceStats() != null) {
+                    final Price normalizedRange = Price.normalizedRange(stats.priceStats().min(), stats.priceStats().max());
+                    if (normalizedRange != null) {
+                        days.put(day, new CryptoStatsWithNormalizedRange(stats, normalizedRange));
+                        changedDays.add(day);
+                    }
+                }
+                final int next = series.fromIndex(nextDayStart);
+                if (next == series.size()) {
+                    break;
+                }
+                // skips days without rows, the next row may also belong to the day before its own
+                final LocalDate nextDay = dayOf(series.timestamp(next) - 1);
+                day = nextDay.isAfter(day) ? nextDay : day.plusDays(1);
+            }
+        }
+        return new SymbolDays(dataVersion, series.lineage(), series.size(), days);
+    }
+
+    private static LocalDate dayOf(final long unixEpochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(unixEpochMillis), ZONE);
+    }
+
+    private static long startOf(final LocalDate day) {
+        return day.atStartOfDay(ZONE).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Stats per day of a crypto, calculated from the first {@code size} rows of a series of {@code lineage}.
+     */
+    private record SymbolDays(long dataVersion, long lineage, int size,
+                              NavigableMap<LocalDate, CryptoStatsWithNormalizedRange> days) {
+    }
+
+    /**
+     * Rankings of all cryptos per day, in descending order of normalized range, as of the data versions.
+     */
+    private record Snapshot(Map<CryptoName, Long> dataVersions,
+                            NavigableMap<LocalDate, List<CryptoStatsWithNormalizedRange>> rankings) {
+    }
+}
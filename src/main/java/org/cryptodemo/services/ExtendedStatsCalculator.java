@@ -0,0 +1,96 @@
+package org.cryptodemo.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.cryptodemo.dal.PriceSeries;
+import org.cryptodemo.data.dto.ExtendedPriceStats;
+import org.cryptodemo.stats.PriceStatsAccumulator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Calculates {@link ExtendedPriceStats} of time windows. Whole days of a window are merged from cached
+ * {@link PriceStatsAccumulator}s of the day and only the rows of the partial days at the edges of the window are
+ * read, so a month window moving by a minute reads about two days of rows instead of a month.
+ * <p>
+ * Days are cached by the lineage of the series (see {@link PriceSeries#lineage()}) and only once the series has a row
+ * of a later day, as appended rows can only change the last day of a series. Hits, misses and evictions are published
+ * as {@code cache.*} metrics of the cache {@code crypto.stats.days}.
+ */
+@Component
+public class ExtendedStatsCalculator implements MeterBinder {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final Cache<DayKey, PriceStatsAccumulator> days;
+
+    public ExtendedStatsCalculator(@Value("${crypto.cache.max-days}") final long maxDays) {
+        this.days = CacheBuilder.newBuilder()
+                .maximumSize(maxDays)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, days, "crypto.stats.days");
+    }
+
+    /**
+     * @param fromIndex index of the first row of the window (inclusive)
+     * @param untilIndex index after the last row of the window (exclusive)
+     * @return statistics of the rows, {@code null} if there are none
+     */
+    public ExtendedPriceStats calculate(final PriceSeries series, final int fromIndex, final int untilIndex) {
+        final PriceStatsAccumulator window = new PriceStatsAccumulator();
+        int index = fromIndex;
+        while (index < untilIndex) {
+            final LocalDate day = LocalDate.ofInstant(Instant.ofEpochMilli(series.timestamp(index)), ZONE);
+            final int dayEnd = series.fromIndex(startOf(day.plusDays(1)));
+            if (dayEnd <= untilIndex && dayEnd < series.size() && index == series.fromIndex(startOf(day))) {
+                window.merge(day(series, day, index, dayEnd));
+            } else {
+                accumulate(window, series, index, Math.min(dayEnd, untilIndex));
+            }
+            index = Math.min(dayEnd, untilIndex);
+        }
+        return window.toStats();
+    }
+
+    private PriceStatsAccumulator day(final PriceSeries series, final LocalDate day, final int from, final int until) {
+        try {
+            return days.get(new DayKey(series.lineage(), day),
+                    () -> accumulate(new PriceStatsAccumulator(), series, from, until));
+        } catch (UncheckedExecutionException | ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static PriceStatsAccumulator accumulate(final PriceStatsAccumulator accumulator, final PriceSeries series,
+                                                    final int from, final int until) {
+        final double unit = Math.pow(10, series.scale());
+        for (int i = from; i < until; i++) {
+            accumulator.add(series.timestamp(i), series.unscaledPrice(i) / unit);
+        }
+        return accumulator;
+    }
+
+    private static long startOf(final LocalDate day) {
+        return day.atStartOfDay(ZONE).toInstant().toEpochMilli();
+    }
+
+    private record DayKey(long lineage, LocalDate day) {
+    }
+}
@@ -0,0 +1,241 @@
+package org.cryptodemo.sharding;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cryptodemo.errors.ApiError;
+import org.cryptodemo.errors.DataNotFoundException;
+import org.cryptodemo.errors.ShardUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends requests to the other instances of a sharded deployment. Requests sent to a shard carry the
+ * {@link #FORWARDED_HEADER}, so the shard answers from its own symbols instead of routing or scattering again. The
+ * header holds {@code crypto.sharding.secret} shared by all instances, so clients can not pass for a shard.
+ */
+@Component
+public class ShardClient {
+
+    public static final String FORWARDED_HEADER = "X-Crypto-Shard-Forwarded";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardClient.class);
+    private static final List<String> FORWARDED_REQUEST_HEADERS =
+            List.of(HttpHeaders.ACCEPT, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE);
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_DISPOSITION,
+            HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL);
+
+    private final ShardRouter router;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+    private final Duration timeout;
+    private final byte[] secret;
+
+    public ShardClient(final ShardRouter router,
+                       final ObjectMapper objectMapper,
+                       @Value("${crypto.sharding.timeout-ms}") final long timeoutMillis,
+                       @Value("${crypto.sharding.secret}") final String secret) {
+        if (router.isEnabled() && secret.isBlank()) {
+            throw new IllegalArgumentException("crypto.sharding.secret has to be set when sharding is enabled");
+        }
+        this.router = router;
+        this.objectMapper = objectMapper;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    /**
+     * @return {@code true} if sharding is enabled and the request was not sent by another shard, so it is routed to
+     * the owning shard or answered together with the other shards
+     */
+    public boolean routesToShards(final HttpServletRequest request) {
+        return router.isEnabled() && !isForwardedByShard(request);
+    }
+
+    /**
+     * @return {@code true} if sharding is enabled and the request carries the {@link #FORWARDED_HEADER} with the
+     * shared secret, i.e. it was sent by another shard
+     */
+    public boolean isForwardedByShard(final HttpServletRequest request) {
+        final String forwarded = request.getHeader(FORWARDED_HEADER);
+        return router.isEnabled() && forwarded != null
+                && MessageDigest.isEqual(secret, forwarded.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a GET request to all other shards in parallel if the request
+     * {@link #routesToShards(HttpServletRequest)}. Shards failing, answering with other than 200 OK (e.g. 404 for no
+     * data) or not answering in time are left out.
+     * @param pathAndQuery path of the request with the query string
+     * @return future of the bodies of the shards that answered, completes within the configured timeout
+     */
+    public <T> CompletableFuture<List<T>> scatter(final HttpServletRequest request, final String pathAndQuery,
+                                                  final TypeReference<T> type) {
+        if (!routesToShards(request)) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        final List<CompletableFuture<Optional<T>>> responses = router.remoteNodes().stream()
+                .map(node -> client.sendAsync(newRequest(node, pathAndQuery).GET().build(), HttpResponse.BodyHandlers.ofByteArray())
+                        .thenApply(response -> {
+                            if (response.statusCode() == HttpStatus.OK.value()) {
+                                return Optional.of(read(response.body(), type));
+                            }
+                            if (response.statusCode() != HttpStatus.NOT_FOUND.value()) {
+                                LOG.warn("Shard {} answered {} with {}", node, pathAndQuery, response.statusCode());
+                            }
+                            return Optional.<T>empty();
+                        })
+                        .exceptionally(e -> {
+                            LOG.warn("Shard {} failed to answer {}", node, pathAndQuery, e);
+                            return Optional.empty();
+                        }))
+                .toList();
+        return CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> responses.stream().map(CompletableFuture::join).flatMap(Optional::stream).toList());
+    }
+
+    /**
+     * Sends a JSON POST request to a shard.
+     * @return future of the response body, failed with {@link DataNotFoundException} if the shard answered 404 and
+     * with {@link ShardUnavailableException} if it did not answer 200 OK in time
+     */
+    public <T> CompletableFuture<T> post(final String node, final String path, final Object body, final TypeReference<T> type) {
+        final byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final HttpRequest request = newRequest(node, path)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .exceptionally(e -> {
+                    throw new ShardUnavailableException("Shard " + node + " is not available", e);
+                })
+                .thenApply(response -> {
+                    if (response.statusCode() == HttpStatus.NOT_FOUND.value()) {
+                        throw new DataNotFoundException(read(response.body(), new TypeReference<ApiError>() {}).message());
+                    }
+                    if (response.statusCode() != HttpStatus.OK.value()) {
+                        throw new ShardUnavailableException("Shard " + node + " answered " + response.statusCode(), null);
+                    }
+                    return read(response.body(), type);
+                });
+    }
+
+    /**
+     * Waits for a future of this client.
+     * @throws RuntimeException the failure of the future
+     */
+    public static <T> T await(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Forwards a GET request to the shard owning its data. The response of the shard is read as a whole without
+     * blocking a thread, the configured timeout covers both the response headers and the body. Conditional request
+     * headers and the validators of the response are forwarded too, so a {@code 304 Not Modified} of the shard is
+     * passed on to the client.
+     * @return future of the response of the shard, failed with {@link ShardUnavailableException} if the shard can not
+     * be reached or does not answer in time
+     */
+    public CompletableFuture<ResponseEntity<?>> forward(final String node, final HttpServletRequest request) {
+        final CompletableFuture<HttpResponse<byte[]>> exchange =
+                client.sendAsync(forwardedRequest(node, request), HttpResponse.BodyHandlers.ofByteArray());
+        final CompletableFuture<HttpResponse<byte[]>> timed = exchange.copy().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        timed.whenComplete((ignored, e) -> {
+            if (e instanceof TimeoutException) {
+                exchange.cancel(true);
+            }
+        });
+        return timed
+                .exceptionally(e -> {
+                    throw new ShardUnavailableException("Shard " + node + " is not available", e);
+                })
+                .thenApply(shardResponse -> shardResponse.statusCode() == HttpStatus.NOT_MODIFIED.value()
+                        ? forwardedResponse(shardResponse).build()
+                        : forwardedResponse(shardResponse).body(shardResponse.body()));
+    }
+
+    /**
+     * Forwards a GET request to the shard owning its data and streams the body of its response. The configured timeout
+     * covers the response headers, the body is copied by the MVC async executor for as long as the client reads, like
+     * a body streamed by this instance.
+     * @return future of the response of the shard, failed with {@link ShardUnavailableException} if the shard can not
+     * be reached or does not answer in time
+     */
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> forwardStreaming(final String node,
+                                                                                    final HttpServletRequest request) {
+        return client.sendAsync(forwardedRequest(node, request), HttpResponse.BodyHandlers.ofInputStream())
+                .exceptionally(e -> {
+                    throw new ShardUnavailableException("Shard " + node + " is not available", e);
+                })
+                .thenApply(shardResponse -> forwardedResponse(shardResponse).body(outputStream -> {
+                    try (InputStream body = shardResponse.body()) {
+                        body.transferTo(outputStream);
+                    }
+                }));
+    }
+
+    private HttpRequest forwardedRequest(final String node, final HttpServletRequest request) {
+        final String pathAndQuery = request.getRequestURI() + (request.getQueryString() == null ? "" : "?" + request.getQueryString());
+        final HttpRequest.Builder shardRequest = newRequest(node, pathAndQuery).GET();
+        for (String header : FORWARDED_REQUEST_HEADERS) {
+            Optional.ofNullable(request.getHeader(header)).ifPresent(value -> shardRequest.header(header, value));
+        }
+        return shardRequest.build();
+    }
+
+    private static ResponseEntity.BodyBuilder forwardedResponse(final HttpResponse<?> shardResponse) {
+        final ResponseEntity.BodyBuilder response = ResponseEntity.status(shardResponse.statusCode());
+        for (String header : FORWARDED_RESPONSE_HEADERS) {
+            shardResponse.headers().firstValue(header).ifPresent(value -> response.header(header, value));
+        }
+        return response;
+    }
+
+    private HttpRequest.Builder newRequest(final String node, final String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create(node + pathAndQuery))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, new String(secret, StandardCharsets.UTF_8));
+    }
+
+    private <T> T read(final byte[] body, final TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.cryptodemo.sharding;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring assigning symbols to shards. Each shard is placed on the ring at {@code virtualNodes} points,
+ * a symbol is owned by the shard of the first point at or after the hash of the symbol. Adding or removing a shard
+ * only moves the symbols of the ring segments it gains or loses.
+ */
+public final class ShardRing {
+
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+
+    /**
+     * @param nodes base URLs of the shards, at least one
+     * @param virtualNodes points per shard on the ring, at least one
+     */
+    public ShardRing(final List<String> nodes, final int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one virtual node per node");
+        }
+        for (String node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * @param symbol symbol name in any case
+     * @return base URL of the shard owning the symbol
+     */
+    public String owner(final String symbol) {
+        final Map.Entry<Long, String> point = points.ceilingEntry(hash(symbol.toUpperCase(Locale.ROOT)));
+        return (point == null ? points.firstEntry() : point).getValue();
+    }
+
+    private static long hash(final String key) {
+        return Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+}
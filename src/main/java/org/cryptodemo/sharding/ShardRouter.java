@@ -0,0 +1,72 @@
+package org.cryptodemo.sharding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Assignment of symbols to the instances of a sharded deployment. Every instance is configured with the same list of
+ * {@code crypto.sharding.nodes} and its own URL as {@code crypto.sharding.self}; symbols are assigned by a
+ * {@link ShardRing} over the nodes. When sharding is disabled the instance owns all symbols.
+ */
+@Component
+public class ShardRouter {
+
+    private final boolean enabled;
+    private final String self;
+    private final List<String> remoteNodes;
+    private final ShardRing ring;
+
+    public ShardRouter(@Value("${crypto.sharding.enabled}") final boolean enabled,
+                       @Value("${crypto.sharding.self}") final String self,
+                       @Value("${crypto.sharding.nodes}") final List<String> nodes,
+                       @Value("${crypto.sharding.virtual-nodes}") final int virtualNodes) {
+        this.enabled = enabled;
+        this.self = self;
+        if (!enabled) {
+            this.remoteNodes = List.of();
+            this.ring = null;
+            return;
+        }
+        if (!nodes.contains(self)) {
+            throw new IllegalArgumentException("crypto.sharding.nodes " + nodes + " do not contain crypto.sharding.self " + self);
+        }
+        this.remoteNodes = nodes.stream().filter(node -> !node.equals(self)).toList();
+        this.ring = new ShardRing(nodes, virtualNodes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param symbol symbol name in any case
+     * @return {@code true} if this instance owns the symbol
+     */
+    public boolean isLocal(final String symbol) {
+        return !enabled || ring.owner(symbol).equals(self);
+    }
+
+    /**
+     * @param symbol symbol name in any case
+     * @return base URL of the instance owning the symbol
+     */
+    public String owner(final String symbol) {
+        return enabled ? ring.owner(symbol) : self;
+    }
+
+    /**
+     * @return {@code true} if {@code node} is the base URL of this instance
+     */
+    public boolean isSelf(final String node) {
+        return node.equals(self);
+    }
+
+    /**
+     * @return base URLs of the other instances, empty when sharding is disabled
+     */
+    public List<String> remoteNodes() {
+        return remoteNodes;
+    }
+}
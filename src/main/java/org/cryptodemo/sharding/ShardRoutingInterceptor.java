@@ -0,0 +1,51 @@
+package org.cryptodemo.sharding;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Decides which requests of endpoints with a {@code cryptoName} path variable belong to another shard: the shard
+ * owning the symbol is recorded on the request, see {@link #owningShard(HttpServletRequest)}, and the controller
+ * forwards the request with {@link ShardClient} without blocking the servlet thread. Requests for symbols of this
+ * instance and requests forwarded by another shard are handled locally.
+ */
+@Component
+public class ShardRoutingInterceptor implements HandlerInterceptor {
+
+    private static final String SHARD_ATTRIBUTE = ShardRoutingInterceptor.class.getName() + ".shard";
+
+    private final ShardRouter router;
+    private final ShardClient client;
+
+    public ShardRoutingInterceptor(final ShardRouter router, final ShardClient client) {
+        this.router = router;
+        this.client = client;
+    }
+
+    /**
+     * @return base URL of the shard the request has to be forwarded to, empty if it is handled locally
+     */
+    public static Optional<String> owningShard(final HttpServletRequest request) {
+        return Optional.ofNullable((String) request.getAttribute(SHARD_ATTRIBUTE));
+    }
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response, final Object handler) {
+        if (!client.routesToShards(request)) {
+            return true;
+        }
+        @SuppressWarnings("unchecked")
+        final Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        final String symbol = variables == null ? null : variables.get("cryptoName");
+        if (symbol != null && !router.isLocal(symbol)) {
+            request.setAttribute(SHARD_ATTRIBUTE, router.owner(symbol));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,89 @@
+package org.cryptodemo.stats;
+
+import org.cryptodemo.data.dto.ExtendedPriceStats;
+
+/**
+ * Accumulates statistics of consecutive price ticks in a single pass: count, mean and standard deviation (Welford),
+ * the time-weighted average price, where each price holds until the next tick, and a {@link QuantileSketch}.
+ * <p>
+ * Accumulators of adjacent runs of ticks are combined by {@link #merge(PriceStatsAccumulator)}, giving the same
+ * result as one accumulator of all the ticks up to floating point rounding and the error of the sketch, so summaries
+ * of buckets or shards are combined without reading the ticks again.
+ */
+public final class PriceStatsAccumulator {
+
+    /** Relative error of the quantiles. */
+    public static final double QUANTILE_ACCURACY = 0.005;
+
+    private long count;
+    private double mean;
+    /** Sum of squared differences from the mean. */
+    private double squares;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private double lastPrice;
+    /** Sum of prices multiplied by the time they held, up to the last tick. */
+    private double weightedSum;
+    private final QuantileSketch sketch = new QuantileSketch(QUANTILE_ACCURACY);
+
+    /**
+     * Adds a tick, ticks must be added in ascending order of timestamps.
+     */
+    public void add(final long timestamp, final double price) {
+        if (count == 0) {
+            firstTimestamp = timestamp;
+        } else {
+            weightedSum += lastPrice * (timestamp - lastTimestamp);
+        }
+        count++;
+        final double delta = price - mean;
+        mean += delta / count;
+        squares += delta * (price - mean);
+        lastTimestamp = timestamp;
+        lastPrice = price;
+        sketch.add(price);
+    }
+
+    /**
+     * Adds the ticks of another accumulator, which must not be older than the ticks of this one. The other
+     * accumulator is not changed.
+     */
+    public void merge(final PriceStatsAccumulator other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            firstTimestamp = other.firstTimestamp;
+        } else {
+            weightedSum += lastPrice * (other.firstTimestamp - lastTimestamp);
+        }
+        final long total = count + other.count;
+        final double delta = other.mean - mean;
+        // Chan et al. combination of means and squared differences
+        squares += other.squares + delta * delta * count / total * other.count;
+        mean += delta * other.count / total;
+        count = total;
+        weightedSum += other.weightedSum;
+        lastTimestamp = other.lastTimestamp;
+        lastPrice = other.lastPrice;
+        sketch.merge(other.sketch);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return statistics of the ticks, {@code null} if there are none
+     */
+    public ExtendedPriceStats toStats() {
+        if (count == 0) {
+            return null;
+        }
+        final long duration = lastTimestamp - firstTimestamp;
+        return new ExtendedPriceStats(count, mean, Math.sqrt(squares / count),
+                duration > 0 ? weightedSum / duration : mean,
+                new ExtendedPriceStats.Quantiles(sketch.quantile(0.05), sketch.quantile(0.25), sketch.quantile(0.5),
+                        sketch.quantile(0.75), sketch.quantile(0.95)));
+    }
+}
@@ -0,0 +1,139 @@
+package org.cryptodemo.stats;
+
+/**
+ * Mergeable sketch of a distribution of values answering quantiles with a bounded relative error. Values are counted
+ * in logarithmic buckets {@code (gamma^(i-1), gamma^i]} with {@code gamma = (1 + accuracy) / (1 - accuracy)} and
+ * a quantile is answered by the value in the middle of its bucket, which is within {@code accuracy} of the exact
+ * value. Sketches with the same accuracy are merged by adding their bucket counts, so the result does not depend on
+ * how the values were split between sketches.
+ * <p>
+ * Negative values are counted by their magnitude in separate buckets, zeros by a single counter. Buckets of a sign
+ * are kept in an array covering the buckets seen so far, values of a window usually fit in a few hundred of them.
+ */
+public final class QuantileSketch {
+
+    private static final double MIN_MAGNITUDE = Double.MIN_NORMAL;
+
+    private final double accuracy;
+    private final double logGamma;
+    private final Buckets positive = new Buckets();
+    private final Buckets negative = new Buckets();
+    private long zeroCount;
+
+    /**
+     * @param accuracy relative error of quantiles, greater than {@code 0} and less than {@code 1}
+     */
+    public QuantileSketch(final double accuracy) {
+        if (!(accuracy > 0 && accuracy < 1)) {
+            throw new IllegalArgumentException("Accuracy must be between 0 and 1: " + accuracy);
+        }
+        this.accuracy = accuracy;
+        this.logGamma = Math.log((1 + accuracy) / (1 - accuracy));
+    }
+
+    public void add(final double value) {
+        if (value > MIN_MAGNITUDE) {
+            positive.add(index(value), 1);
+        } else if (value < -MIN_MAGNITUDE) {
+            negative.add(index(-value), 1);
+        } else {
+            zeroCount++;
+        }
+    }
+
+    /**
+     * Adds the values of another sketch of the same accuracy.
+     */
+    public void merge(final QuantileSketch other) {
+        if (other.accuracy != accuracy) {
+            throw new IllegalArgumentException("Sketches of different accuracy can not be merged");
+        }
+        positive.addAll(other.positive);
+        negative.addAll(other.negative);
+        zeroCount += other.zeroCount;
+    }
+
+    public long count() {
+        return positive.total + negative.total + zeroCount;
+    }
+
+    /**
+     * @param quantile between {@code 0} and {@code 1}
+     * @return approximate value of the quantile, {@code NaN} if the sketch is empty
+     */
+    public double quantile(final double quantile) {
+        final long count = count();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        final long rank = (long) (quantile * (count - 1));
+        if (rank < negative.total) {
+            // the lowest negative values have the highest magnitude
+            return -value(negative.indexOfRank(negative.total - 1 - rank));
+        }
+        if (rank < negative.total + zeroCount) {
+            return 0;
+        }
+        return value(positive.indexOfRank(rank - negative.total - zeroCount));
+    }
+
+    private int index(final double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    private double value(final int index) {
+        return 2 * Math.exp(index * logGamma) / (Math.exp(logGamma) + 1);
+    }
+
+    /**
+     * Counts of consecutive bucket indices starting at {@code offset}.
+     */
+    private static final class Buckets {
+
+        private long[] counts = new long[0];
+        private int offset;
+        private long total;
+
+        void add(final int index, final long count) {
+            if (counts.length == 0) {
+                counts = new long[16];
+                offset = index - counts.length / 2;
+            } else if (index < offset || index >= offset + counts.length) {
+                final int from = Math.min(index, offset);
+                final int until = Math.max(index + 1, offset + counts.length);
+                // grows by at least a half, so adding values of a slowly moving range copies the counts rarely
+                final int length = Math.max(until - from, counts.length + counts.length / 2);
+                final int newOffset = index < offset ? until - length : from;
+                final long[] grown = new long[length];
+                System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+                counts = grown;
+                offset = newOffset;
+            }
+            counts[index - offset] += count;
+            total += count;
+        }
+
+        void addAll(final Buckets other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+
+        /**
+         * @param rank number of values before the value in ascending order of indices, less than {@link #total}
+         * @return index of the bucket containing the value
+         */
+        int indexOfRank(final long rank) {
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return offset + i;
+                }
+            }
+            throw new IllegalStateException("Rank " + rank + " out of " + total);
+        }
+    }
+}
@@ -11,4 +11,11 @@ public class TimeUtils {
     public static long getUnixEpochMillisNMonthsBack(final int monthsBack) {
         return LocalDateTime.now().minusMonths(monthsBack).atZone(ZoneId.systemDefault()).toInstant().getEpochSecond() * 1000;
     }
+
+    /**
+     * Rounds a point in time down to a whole multiple of {@code granularityMillis} since Unix Epoch.
+     */
+    public static long alignDown(final long unixEpochMillis, final long granularityMillis) {
+        return Math.floorDiv(unixEpochMillis, granularityMillis) * granularityMillis;
+    }
 }
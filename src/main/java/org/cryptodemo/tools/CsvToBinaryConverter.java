@@ -0,0 +1,63 @@
+package org.cryptodemo.tools;
+
+import org.cryptodemo.dal.BinaryPriceFile;
+import org.cryptodemo.dal.PriceLineParser;
+import org.cryptodemo.dal.PriceRows;
+import org.cryptodemo.data.entity.CryptoRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Converts {@code <SYMBOL>_values.csv} price files ({@code timestamp,symbol,price} with a header line) into
+ * {@link BinaryPriceFile} files with the same base name. Lines that can not be parsed are skipped, the same way
+ * csvjdbc skips them with {@code ignoreNonParseableLines}.
+ * <p>
+ * Usage: {@code CsvToBinaryConverter <csv directory> <binary directory>}
+ */
+public class CsvToBinaryConverter {
+
+    private static final String CSV_EXTENSION = ".csv";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CsvToBinaryConverter <csv directory> <binary directory>");
+            System.exit(1);
+        }
+        final Path binaryDirectory = Files.createDirectories(Path.of(args[1]));
+        try (DirectoryStream<Path> csvFiles = Files.newDirectoryStream(Path.of(args[0]), "*_values" + CSV_EXTENSION)) {
+            for (Path csvFile : csvFiles) {
+                final String fileName = csvFile.getFileName().toString();
+                final Path binaryFile = binaryDirectory.resolve(
+                        fileName.substring(0, fileName.length() - CSV_EXTENSION.length()) + BinaryPriceFile.EXTENSION);
+                final int rows = convert(csvFile, binaryFile);
+                System.out.println(csvFile + " -> " + binaryFile + ": " + rows + " rows");
+            }
+        }
+    }
+
+    /**
+     * Converts a single CSV price file.
+     * @return number of rows written
+     * @throws IOException on read or write error
+     */
+    public static int convert(final Path csvFile, final Path binaryFile) throws IOException {
+        final PriceRows rows = new PriceRows();
+        try (BufferedReader reader = Files.newBufferedReader(csvFile)) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final CryptoRecord row = PriceLineParser.parse(line);
+                if (row != null) {
+                    rows.add(row.timestamp(), row.price());
+                }
+            }
+        }
+        rows.sort();
+        BinaryPriceFile.write(binaryFile, rows);
+        return rows.size();
+    }
+}
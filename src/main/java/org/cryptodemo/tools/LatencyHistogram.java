@@ -0,0 +1,73 @@
+package org.cryptodemo.tools;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds with a relative error below 1%, so long runs record any number
+ * of samples in constant memory. Not thread safe, each load worker records into its own histogram and the
+ * histograms are merged for the report.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int HALF_SUB_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+
+    private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS + 2) * HALF_SUB_BUCKETS];
+    private long totalCount;
+    private long maxValue;
+
+    void record(final long nanos) {
+        final long value = Math.max(nanos, 0);
+        counts[index(value)]++;
+        totalCount++;
+        maxValue = Math.max(maxValue, value);
+    }
+
+    void add(final LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    long totalCount() {
+        return totalCount;
+    }
+
+    long maxValue() {
+        return maxValue;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. {@code 0.999}
+     * @return highest value of the bucket holding the quantile, {@code 0} when nothing was recorded
+     */
+    long valueAtQuantile(final double quantile) {
+        final long rank = Math.max(1, (long) Math.ceil(quantile * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), maxValue);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Values below {@code 2^SUB_BUCKET_BITS} have a bucket each, larger values are shifted right until they fit
+     * {@code SUB_BUCKET_BITS} bits and the shift selects the range of buckets.
+     */
+    private static int index(final long value) {
+        final int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long highestValue(final int index) {
+        if (index < 2 * HALF_SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / HALF_SUB_BUCKETS - 1;
+        final long mantissa = index - (long) shift * HALF_SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,224 @@
+package org.cryptodemo.tools;
+
+import org.cryptodemo.CryptoDemoApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drives {@code /crypto/top}, {@code /crypto/pricesInfo/{cryptoName}} and {@code /crypto/dayTop} with a fixed number
+ * of concurrent clients and reports throughput and latency percentiles per endpoint. Each client sends its next
+ * request as soon as the previous one completed (closed model). Requests of the warm-up period are not reported.
+ * <p>
+ * By default the application is started in this JVM over the CSV files of {@code --data}, e.g. files written by
+ * {@link TickDataGenerator}. With {@code --url} a running deployment is targeted instead.
+ * <p>
+ * Options: {@code --data=<directory>}, {@code --url=<base url>}, {@code --concurrency=16},
+ * {@code --duration=60} and {@code --warmup=10} in seconds, {@code --endpoints=top,pricesInfo,dayTop},
+ * {@code --symbols=BTC,ETH,...} (default: symbols of the files in {@code --data}), {@code --days=30} days back
+ * from today to pick {@code dayTop} dates from, {@code --seed=0}.
+ */
+public class LoadDriver {
+
+    private static final String FILE_SUFFIX = "_values.csv";
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String baseUrl;
+    private final List<String> endpoints;
+    private final List<String> symbols;
+    private final int days;
+
+    LoadDriver(final String baseUrl, final List<String> endpoints, final List<String> symbols, final int days) {
+        this.baseUrl = baseUrl;
+        this.endpoints = endpoints;
+        this.symbols = symbols;
+        this.days = days;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = parseOptions(args);
+        final int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        final Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        final Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        final List<String> endpoints = List.of(options.getOrDefault("endpoints", "top,pricesInfo,dayTop").split(","));
+        final int days = Integer.parseInt(options.getOrDefault("days", "30"));
+        final long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.get("url");
+        List<String> symbols = options.containsKey("symbols") ? List.of(options.get("symbols").split(",")) : null;
+        if (baseUrl == null) {
+            if (!options.containsKey("data")) {
+                System.err.println("Either --data=<directory> or --url=<base url> is required");
+                System.exit(1);
+            }
+            final Path data = Path.of(options.get("data")).toAbsolutePath();
+            if (symbols == null) {
+                symbols = symbolsOf(data);
+            }
+            context = new SpringApplication(CryptoDemoApplication.class).run(
+                    "--datasource.url=jdbc:relique:csv:" + data,
+                    "--datasource.watch.enabled=false",
+                    // all clients of the driver share one address
+                    "--crypto.admission.client-rate=0",
+                    "--server.port=0");
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        } else if (symbols == null) {
+            symbols = List.of("BTC", "DOGE", "ETH", "LTC", "XRP");
+        }
+        try {
+            final LoadDriver driver = new LoadDriver(baseUrl, endpoints, symbols, days);
+            System.out.printf("Driving %s with %d clients for %s after %s warm-up%n", baseUrl, concurrency, duration, warmup);
+            driver.run(concurrency, warmup, duration, seed).forEach((endpoint, result) -> System.out.println(result.format(endpoint, duration)));
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the clients and waits for them to finish.
+     * @return results per endpoint in the order of {@link #endpoints}, followed by the total
+     */
+    Map<String, EndpointResult> run(final int concurrency, final Duration warmup, final Duration duration,
+                                    final long seed) throws InterruptedException, ExecutionException {
+        final long measureFrom = System.nanoTime() + warmup.toNanos();
+        final long measureUntil = measureFrom + duration.toNanos();
+        final ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            final List<Future<Map<String, EndpointResult>>> futures = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                final Random random = new Random(seed + i);
+                futures.add(clients.submit(() -> runClient(random, measureFrom, measureUntil)));
+            }
+            final Map<String, EndpointResult> results = new LinkedHashMap<>();
+            endpoints.forEach(endpoint -> results.put(endpoint, new EndpointResult()));
+            final EndpointResult total = new EndpointResult();
+            for (Future<Map<String, EndpointResult>> future : futures) {
+                future.get().forEach((endpoint, result) -> {
+                    results.get(endpoint).add(result);
+                    total.add(result);
+                });
+            }
+            results.put("total", total);
+            return results;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private Map<String, EndpointResult> runClient(final Random random, final long measureFrom, final long measureUntil) {
+        final Map<String, EndpointResult> results = new HashMap<>();
+        endpoints.forEach(endpoint -> results.put(endpoint, new EndpointResult()));
+        while (!Thread.currentThread().isInterrupted()) {
+            final String endpoint = endpoints.get(random.nextInt(endpoints.size()));
+            final HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path(endpoint, random)))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            final long start = System.nanoTime();
+            if (start >= measureUntil) {
+                break;
+            }
+            boolean success;
+            try {
+                success = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() / 100 == 2;
+            } catch (IOException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (start >= measureFrom) {
+                results.get(endpoint).record(System.nanoTime() - start, success);
+            }
+        }
+        return results;
+    }
+
+    private String path(final String endpoint, final Random random) {
+        return switch (endpoint) {
+            case "top" -> "/crypto/top?monthsBefore=" + random.nextInt(12);
+            case "pricesInfo" -> "/crypto/pricesInfo/" + symbols.get(random.nextInt(symbols.size()))
+                    + "?monthsBefore=" + random.nextInt(12);
+            case "dayTop" -> "/crypto/dayTop?date=" + LocalDate.now().minusDays(random.nextInt(Math.max(days, 1)));
+            default -> throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        };
+    }
+
+    private static List<String> symbolsOf(final Path directory) throws IOException {
+        final List<String> symbols = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                final String fileName = file.getFileName().toString();
+                symbols.add(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+            }
+        }
+        return symbols;
+    }
+
+    private static Map<String, String> parseOptions(final String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Options must have the form --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Latencies and errors of one endpoint. Requests answered with other than a 2xx status count as errors.
+     */
+    static final class EndpointResult {
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private long errors;
+
+        void record(final long nanos, final boolean success) {
+            latencies.record(nanos);
+            if (!success) {
+                errors++;
+            }
+        }
+
+        void add(final EndpointResult other) {
+            latencies.add(other.latencies);
+            errors += other.errors;
+        }
+
+        String format(final String endpoint, final Duration duration) {
+            return String.format(Locale.ROOT, "%-12s requests=%d errors=%d throughput=%.1f/s p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+                    endpoint, latencies.totalCount(), errors, latencies.totalCount() / (duration.toNanos() / 1e9),
+                    millis(latencies.valueAtQuantile(0.5)), millis(latencies.valueAtQuantile(0.99)),
+                    millis(latencies.valueAtQuantile(0.999)), millis(latencies.maxValue()));
+        }
+
+        private static double millis(final long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
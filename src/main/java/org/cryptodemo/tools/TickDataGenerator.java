@@ -0,0 +1,112 @@
+package org.cryptodemo.tools;
+
+import org.cryptodemo.data.Price;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic {@code <SYMBOL>_values.csv} price files ({@code timestamp,symbol,price} with a header line).
+ * Prices of each symbol follow a geometric random walk with occasional jumps, ticks are spaced around the given
+ * interval with random jitter. The same arguments always generate the same files.
+ * <p>
+ * Usage: {@code TickDataGenerator <directory> <symbols> <years> <interval seconds> [seed]}, where {@code symbols}
+ * is either a comma separated list of symbols or a number of symbols to generate names for.
+ */
+public class TickDataGenerator {
+
+    private static final double ANNUAL_VOLATILITY = 0.8;
+    private static final double JUMP_PROBABILITY = 0.0005;
+    private static final double MAX_JUMP = 0.1;
+    private static final long YEAR_MILLIS = Duration.ofDays(365).toMillis();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4 || args.length > 5) {
+            System.err.println("Usage: TickDataGenerator <directory> <symbols> <years> <interval seconds> [seed]");
+            System.exit(1);
+        }
+        final Path directory = Files.createDirectories(Path.of(args[0]));
+        final List<String> symbols = parseSymbols(args[1]);
+        final long until = System.currentTimeMillis();
+        final long from = until - (long) (Double.parseDouble(args[2]) * YEAR_MILLIS);
+        final long interval = Duration.ofSeconds(Long.parseLong(args[3])).toMillis();
+        final long seed = args.length == 5 ? Long.parseLong(args[4]) : 0;
+        for (String symbol : symbols) {
+            final long rows = generate(directory, symbol, from, until, interval, seed);
+            System.out.println(symbol + ": " + rows + " rows");
+        }
+    }
+
+    /**
+     * Writes the price file of a single symbol, replacing an existing one.
+     * @param from timestamp of the first tick
+     * @param until timestamp no tick reaches
+     * @param intervalMillis average distance between ticks
+     * @param seed combined with the symbol to seed the random walk
+     * @return number of rows written
+     * @throws IOException on write error
+     */
+    public static long generate(final Path directory, final String symbol, final long from, final long until,
+                                final long intervalMillis, final long seed) throws IOException {
+        final Random random = new Random(seed * 31 + symbol.hashCode());
+        // start prices spread over several orders of magnitude, with the number of decimals used for such prices
+        final double startPrice = Math.pow(10, -1 + random.nextDouble() * 5);
+        final int scale = startPrice >= 100 ? 2 : 4;
+        final double minPrice = Math.pow(10, -scale);
+        final double tickVolatility = ANNUAL_VOLATILITY * Math.sqrt((double) intervalMillis / YEAR_MILLIS);
+        double price = startPrice;
+        long rows = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(symbol + "_values.csv"))) {
+            writer.write("timestamp,symbol,price\n");
+            final StringBuilder line = new StringBuilder();
+            for (long timestamp = from; timestamp < until; timestamp += nextInterval(random, intervalMillis)) {
+                price *= Math.exp(tickVolatility * random.nextGaussian() - tickVolatility * tickVolatility / 2);
+                if (random.nextDouble() < JUMP_PROBABILITY) {
+                    price *= 1 + (random.nextDouble() * 2 - 1) * MAX_JUMP;
+                }
+                price = Math.max(price, minPrice);
+                line.setLength(0);
+                line.append(timestamp).append(',').append(symbol).append(',')
+                        .append(new Price(Math.round(price / minPrice), scale).toPlainString()).append('\n');
+                writer.append(line);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static long nextInterval(final Random random, final long intervalMillis) {
+        return Math.max(1, Math.round(intervalMillis * (0.5 + random.nextDouble())));
+    }
+
+    private static List<String> parseSymbols(final String symbols) {
+        if (symbols.chars().allMatch(Character::isDigit)) {
+            final int count = Integer.parseInt(symbols);
+            final List<String> names = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                names.add(symbolName(i));
+            }
+            return names;
+        }
+        return List.of(symbols.split(","));
+    }
+
+    /**
+     * @return three or more letter symbol name, {@code AAA}, {@code AAB}, ...
+     */
+    private static String symbolName(final int index) {
+        final StringBuilder name = new StringBuilder();
+        int remaining = index;
+        for (int i = 0; i < 3 || remaining > 0; i++) {
+            name.insert(0, (char) ('A' + remaining % 26));
+            remaining /= 26;
+        }
+        return name.toString();
+    }
+}
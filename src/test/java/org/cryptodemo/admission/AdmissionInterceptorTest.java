@@ -0,0 +1,76 @@
+package org.cryptodemo.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"crypto.admission.client-rate=0.001", "crypto.admission.client-burst=1",
+        "crypto.admission.trusted-proxies=127.0.0.1,10.0.0.254"})
+@AutoConfigureMockMvc
+class AdmissionInterceptorTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdmissionLimiter limiter;
+
+    @Test
+    void preHandle_clientOverRate() throws Exception {
+        performAsync(get("/crypto/top").header("X-Forwarded-For", "10.0.0.1, 10.0.0.254"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/crypto/top").header("X-Forwarded-For", "10.0.0.1"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(content().string("{\"type\":\"too-many-requests\",\"message\":\"Too many requests from 10.0.0.1\"}"));
+        performAsync(get("/crypto/top").header("X-Forwarded-For", "10.0.0.2"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void preHandle_clientWrittenForwardedForIgnored() throws Exception {
+        performAsync(get("/crypto/top").header("X-Forwarded-For", "10.0.0.4"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/crypto/top").header("X-Forwarded-For", "10.0.0.99, 10.0.0.4, 10.0.0.254"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(content().string("{\"type\":\"too-many-requests\",\"message\":\"Too many requests from 10.0.0.4\"}"));
+    }
+
+    @Test
+    void preHandle_shardHeaderWithoutSecretIgnored() throws Exception {
+        performAsync(get("/crypto/top").header("X-Forwarded-For", "10.0.0.5").header("X-Crypto-Shard-Forwarded", "true"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/crypto/top").header("X-Forwarded-For", "10.0.0.5").header("X-Crypto-Shard-Forwarded", "true"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void afterCompletion_releasesPermitAfterAsyncDispatch() throws Exception {
+        final MvcResult result = mockMvc.perform(get("/crypto/top").header("X-Forwarded-For", "10.0.0.3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1, limiter.inFlight());
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    private ResultActions performAsync(final MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        final MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
@@ -0,0 +1,89 @@
+package org.cryptodemo.admission;
+
+import org.cryptodemo.errors.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdmissionLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    @Test
+    void acquire_clientOverBurst() {
+        final AdmissionLimiter limiter = limiter(0.001, 2, 10);
+        limiter.release(limiter.acquire("10.0.0.1", AdmissionLimiter.Priority.HIGH), FAST);
+        limiter.release(limiter.acquire("10.0.0.1", AdmissionLimiter.Priority.HIGH), FAST);
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("10.0.0.1", AdmissionLimiter.Priority.HIGH));
+        limiter.release(limiter.acquire("10.0.0.2", AdmissionLimiter.Priority.HIGH), FAST);
+        limiter.release(limiter.acquire(null, AdmissionLimiter.Priority.HIGH), FAST);
+    }
+
+    @Test
+    void acquire_lowPriorityShedFirst() {
+        final AdmissionLimiter limiter = limiter(0, 1, 10);
+        final List<AdmissionLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            permits.add(limiter.acquire(null, AdmissionLimiter.Priority.LOW));
+        }
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire(null, AdmissionLimiter.Priority.LOW));
+        for (int i = 0; i < 5; i++) {
+            permits.add(limiter.acquire(null, AdmissionLimiter.Priority.HIGH));
+        }
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire(null, AdmissionLimiter.Priority.HIGH));
+        limiter.release(permits.get(0), FAST);
+        permits.add(limiter.acquire(null, AdmissionLimiter.Priority.HIGH));
+        assertEquals(10, limiter.inFlight());
+    }
+
+    @Test
+    void release_slowRequestsCutLimitOncePerGeneration() {
+        final AdmissionLimiter limiter = limiter(0, 1, 100);
+        final List<AdmissionLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            permits.add(limiter.acquire(null, AdmissionLimiter.Priority.HIGH));
+        }
+        permits.forEach(permit -> limiter.release(permit, SLOW));
+        assertEquals(90, limiter.limit());
+        limiter.release(limiter.acquire(null, AdmissionLimiter.Priority.HIGH), SLOW);
+        assertEquals(81, limiter.limit());
+        for (int i = 0; i < 100; i++) {
+            limiter.release(limiter.acquire(null, AdmissionLimiter.Priority.HIGH), SLOW);
+        }
+        assertEquals(8, limiter.limit());
+    }
+
+    @Test
+    void release_fastRequestsRaiseUsedLimit() {
+        final AdmissionLimiter limiter = limiter(0, 1, 10);
+        for (int i = 0; i < 100; i++) {
+            limiter.release(limiter.acquire(null, AdmissionLimiter.Priority.HIGH), FAST);
+        }
+        assertEquals(10, limiter.limit());
+        for (int round = 0; round < 20; round++) {
+            final List<AdmissionLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limiter.limit(); i++) {
+                permits.add(limiter.acquire(null, AdmissionLimiter.Priority.HIGH));
+            }
+            permits.forEach(permit -> limiter.release(permit, FAST));
+        }
+        assertThat(limiter.limit(), greaterThan(15));
+        assertThat(limiter.limit(), lessThan(30));
+    }
+
+    /**
+     * Limiter with a latency target of one second, limits between 8 and 256 and half of the limit for low priority.
+     */
+    private static AdmissionLimiter limiter(final double clientRate, final int clientBurst, final int initialLimit) {
+        return new AdmissionLimiter(clientRate, clientBurst, 1000, 1000, initialLimit, 8, 256, 0.5);
+    }
+}
@@ -1,22 +1,37 @@
 package org.cryptodemo.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
 import org.cryptodemo.services.CryptoService;
+import org.cryptodemo.sharding.ShardRouter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.Month;
 import java.time.Period;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.core.IsNot.not;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.web.servlet.function.RequestPredicates.contentType;
@@ -35,9 +50,12 @@ class AppControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @SpyBean
+    private ShardRouter shardRouter;
+
     @Test
     void getTopCryptos_noPresentData() throws Exception {
-        mockMvc.perform(get("/crypto/top"))
+        performAsync(get("/crypto/top"))
                 .andDo(print())
                 .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
                 .andExpect(content().string("[]"))
@@ -46,7 +64,7 @@ class AppControllerTest {
 
     @Test
     void getTopCryptos_expectNonEmptyResponse() throws Exception {
-        mockMvc.perform(get("/crypto/top")
+        performAsync(get("/crypto/top")
                         .param("monthsBefore", String.valueOf(getMonthsSinceLastDataTimestamp())))
                 .andDo(print())
                 .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
@@ -65,7 +83,7 @@ class AppControllerTest {
 
     @Test
     void getCryptoPricesInfo_notFound() throws Exception {
-        mockMvc.perform(get("/crypto/pricesInfo/NEW_UNSUPPORTED"))
+        performAsync(get("/crypto/pricesInfo/NEW_UNSUPPORTED"))
                 .andDo(print())
                 .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
                 .andExpect(content().string("{\"type\":\"crypto-not-found\",\"message\":\"No data exists for NEW_UNSUPPORTED\"}"))
@@ -74,7 +92,7 @@ class AppControllerTest {
 
     @Test
     void getCryptoPricesInfo_empty() throws Exception {
-        mockMvc.perform(get("/crypto/pricesInfo/BTC"))
+        performAsync(get("/crypto/pricesInfo/BTC"))
                 .andDo(print())
                 .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
                 .andExpect(content().string("{\"cryptoName\":\"BTC\",\"earliestTimestamp\":null,\"latestTimestamp\":null,\"priceStats\":null}"))
@@ -83,7 +101,7 @@ class AppControllerTest {
 
     @Test
     void getCryptoPricesInfo_nonEmpty() throws Exception {
-        mockMvc.perform(get("/crypto/pricesInfo/BTC")
+        performAsync(get("/crypto/pricesInfo/BTC")
                         .param("monthsBefore", String.valueOf(getMonthsSinceLastDataTimestamp())))
                 .andDo(print())
                 .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
@@ -101,9 +119,160 @@ class AppControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void getCryptoPricesInfos_expectStatsInQueryOrder() throws Exception {
+        performAsync(post("/crypto/pricesInfo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"cryptoName\":\"XRP\",\"from\":1642039200000,\"until\":1642100460000},"
+                                + "{\"cryptoName\":\"BTC\",\"monthsBefore\":" + getMonthsSinceLastDataTimestamp() + "}]"))
+                .andDo(print())
+                .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(content().string(startsWith("[{\"cryptoName\":\"XRP\",\"earliestTimestamp\":1642039200000,\"latestTimestamp\":1642100400000,\"priceStats\":{\"oldest\":0.7921,\"newest\":0.7686,\"min\":0.7686,\"max\":0.793}},{\"cryptoName\":\"BTC\"")))
+                .andExpect(content().string(containsString("\"newest\":")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getCryptoPricesInfos_notFound() throws Exception {
+        performAsync(post("/crypto/pricesInfo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"cryptoName\":\"BTC\",\"monthsBefore\":0},{\"cryptoName\":\"NEW_UNSUPPORTED\",\"monthsBefore\":0}]"))
+                .andDo(print())
+                .andExpect(content().string("{\"type\":\"crypto-not-found\",\"message\":\"No data exists for NEW_UNSUPPORTED\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getCryptoPricesInfos_invalidWindow() throws Exception {
+        mockMvc.perform(post("/crypto/pricesInfo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"cryptoName\":\"BTC\",\"from\":10}]"))
+                .andDo(print())
+                .andExpect(content().string(containsString("\"type\":\"bad-request\"")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getCryptoPricesInfos_unknownCrypto_notFound() throws Exception {
+        performAsync(post("/crypto/pricesInfo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"cryptoName\":\"foo\",\"monthsBefore\":0}]"))
+                .andDo(print())
+                .andExpect(content().string("{\"type\":\"crypto-not-found\",\"message\":\"No data exists for FOO\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getCandles_expectFound() throws Exception {
+        performAsync(get("/crypto/XRP/candles")
+                        .param("from", "1642039200000")
+                        .param("until", "1642100400000")
+                        .param("interval", "12h"))
+                .andDo(print())
+                .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(content().string("[{\"start\":1642032000000,\"open\":0.7921,\"high\":0.793,\"low\":0.7921,\"close\":0.793,\"ticks\":2},"
+                        + "{\"start\":1642075200000,\"open\":0.7837,\"high\":0.7837,\"low\":0.7686,\"close\":0.7686,\"ticks\":3}]"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getCandles_invalidInterval() throws Exception {
+        performAsync(get("/crypto/XRP/candles")
+                        .param("from", "1642039200000")
+                        .param("until", "1642100400000")
+                        .param("interval", "hourly"))
+                .andDo(print())
+                .andExpect(content().string("{\"type\":\"bad-request\",\"message\":\"Invalid interval: hourly\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getCandles_tooManyCandles() throws Exception {
+        performAsync(get("/crypto/XRP/candles")
+                        .param("from", "0")
+                        .param("until", "1642100400000")
+                        .param("interval", "1m"))
+                .andDo(print())
+                .andExpect(content().string(containsString("\"type\":\"bad-request\"")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getRollingRanges_expectFound() throws Exception {
+        performAsync(get("/crypto/XRP/rolling")
+                        .param("from", "1640995200000")
+                        .param("until", "1641081600000")
+                        .param("window", "12h")
+                        .param("step", "6h"))
+                .andDo(print())
+                .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(content().string("[{\"timestamp\":1640995200000,\"min\":0.8298,\"max\":0.8298,\"normalizedRange\":0},"
+                        + "{\"timestamp\":1641016800000,\"min\":0.8298,\"max\":0.842,\"normalizedRange\":0.0147},"
+                        + "{\"timestamp\":1641038400000,\"min\":0.8298,\"max\":0.842,\"normalizedRange\":0.0147},"
+                        + "{\"timestamp\":1641060000000,\"min\":0.842,\"max\":0.842,\"normalizedRange\":0},"
+                        + "{\"timestamp\":1641081600000,\"min\":0.8458,\"max\":0.8458,\"normalizedRange\":0}]"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getRollingRanges_tooManySamples() throws Exception {
+        performAsync(get("/crypto/XRP/rolling")
+                        .param("from", "0")
+                        .param("until", "1642100400000")
+                        .param("step", "1m"))
+                .andDo(print())
+                .andExpect(content().string(containsString("\"type\":\"bad-request\"")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportRecords_csv() throws Exception {
+        performStreaming(get("/crypto/XRP/export")
+                        .param("from", "1642039200000")
+                        .param("until", "1642053600000")
+                        .param("format", "csv"))
+                .andDo(print())
+                .andExpect(header().string("content-type", "text/csv"))
+                .andExpect(content().string("timestamp,symbol,price\n1642039200000,XRP,0.7921\n1642053600000,XRP,0.793\n"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void exportRecords_ndjson() throws Exception {
+        performStreaming(get("/crypto/XRP/export")
+                        .param("from", "1642039200000")
+                        .param("until", "1642053600000"))
+                .andDo(print())
+                .andExpect(header().string("content-type", MediaType.APPLICATION_NDJSON_VALUE))
+                .andExpect(content().string("{\"timestamp\":1642039200000,\"symbol\":\"XRP\",\"price\":0.7921}\n"
+                        + "{\"timestamp\":1642053600000,\"symbol\":\"XRP\",\"price\":0.793}\n"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void exportRecords_unknownFormat() throws Exception {
+        mockMvc.perform(get("/crypto/XRP/export")
+                        .param("from", "0")
+                        .param("until", "1")
+                        .param("format", "xml"))
+                .andDo(print())
+                .andExpect(content().string("{\"type\":\"bad-request\",\"message\":\"Unknown format: xml\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportRecords_notFound() throws Exception {
+        mockMvc.perform(get("/crypto/NEW_UNSUPPORTED/export")
+                        .param("from", "0")
+                        .param("until", "1"))
+                .andDo(print())
+                .andExpect(content().string("{\"type\":\"crypto-not-found\",\"message\":\"No data exists for NEW_UNSUPPORTED\"}"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void getDayTopCrypto_defaultDate_expectNotFound() throws Exception {
-        mockMvc.perform(get("/crypto/dayTop"))
+        performAsync(get("/crypto/dayTop"))
                 .andDo(print())
                 .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
                 .andExpect(content().string(containsString("No data found for any crypto for given date")))
@@ -112,7 +281,7 @@ class AppControllerTest {
 
     @Test
     void getDayTopCrypto_stringDate_expectFound() throws Exception {
-        mockMvc.perform(get("/crypto/dayTop").param("date", "2022-01-13"))
+        performAsync(get("/crypto/dayTop").param("date", "2022-01-13"))
                 .andDo(print())
                 .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
                 .andExpect(content().string("{\"crypto\":{\"cryptoName\":\"XRP\",\"earliestTimestamp\":1642039200000,\"latestTimestamp\":1642100400000,\"priceStats\":{\"oldest\":0.7921,\"newest\":0.7686,\"min\":0.7686,\"max\":0.793}},\"normalizedRange\":0.0317}"))
@@ -121,7 +290,7 @@ class AppControllerTest {
 
     @Test
     void getDayTopCrypto_unixDate_expectFound() throws Exception {
-        mockMvc.perform(get("/crypto/dayTop").param("date", "1642881600000"))
+        performAsync(get("/crypto/dayTop").param("date", "1642881600000"))
                 .andDo(print())
                 .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
                 .andExpect(content().string("{\"crypto\":{\"cryptoName\":\"DOGE\",\"earliestTimestamp\":1642827600000,\"latestTimestamp\":1642863600000,\"priceStats\":{\"oldest\":0.1433,\"newest\":0.1294,\"min\":0.129,\"max\":0.1433}},\"normalizedRange\":0.1109}"))
@@ -137,7 +306,112 @@ class AppControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void getDayTopCryptos_expectTopOfEachDay() throws Exception {
+        performAsync(get("/crypto/dayTop/range").param("from", "2022-01-13").param("until", "2022-01-13"))
+                .andDo(print())
+                .andExpect(header().string("content-type", MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(content().string("[{\"date\":\"2022-01-13\",\"top\":{\"crypto\":{\"cryptoName\":\"XRP\",\"earliestTimestamp\":1642039200000,\"latestTimestamp\":1642100400000,\"priceStats\":{\"oldest\":0.7921,\"newest\":0.7686,\"min\":0.7686,\"max\":0.793}},\"normalizedRange\":0.0317}}]"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getDayTopCryptos_fromAfterUntil() throws Exception {
+        performAsync(get("/crypto/dayTop/range").param("from", "2022-01-14").param("until", "2022-01-13"))
+                .andDo(print())
+                .andExpect(content().string("{\"type\":\"bad-request\",\"message\":\"from must not be after until\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getDayTopCrypto_ifNoneMatch_notModified() throws Exception {
+        final String etag = performAsync(get("/crypto/dayTop").param("date", "2022-01-13"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("max-age=86400")))
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        performAsync(get("/crypto/dayTop").param("date", "2022-01-13").header("If-None-Match", etag))
+                .andDo(print())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getCryptoPricesInfo_staleEtag_expectFullResponse() throws Exception {
+        performAsync(get("/crypto/pricesInfo/BTC").header("If-None-Match", "W/\"stale\""))
+                .andDo(print())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().string(containsString("\"cryptoName\":\"BTC\"")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getCryptoPricesInfo_otherShard_forwardsValidators() throws Exception {
+        final List<String> receivedEtags = new CopyOnWriteArrayList<>();
+        final HttpServer shard = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        shard.createContext("/crypto/pricesInfo/REMOTE", exchange -> {
+            final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            receivedEtags.add(String.valueOf(ifNoneMatch));
+            exchange.getResponseHeaders().add("ETag", "W/\"remote\"");
+            exchange.getResponseHeaders().add("Last-Modified", "Thu, 13 Jan 2022 00:00:00 GMT");
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            if ("W/\"remote\"".equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(HttpStatus.NOT_MODIFIED.value(), -1);
+            } else {
+                final byte[] body = "{\"cryptoName\":\"REMOTE\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+                exchange.sendResponseHeaders(HttpStatus.OK.value(), body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        shard.start();
+        try {
+            doReturn(true).when(shardRouter).isEnabled();
+            doReturn(false).when(shardRouter).isLocal("REMOTE");
+            doReturn("http://localhost:" + shard.getAddress().getPort()).when(shardRouter).owner("REMOTE");
+
+            performAsync(get("/crypto/pricesInfo/REMOTE"))
+                    .andDo(print())
+                    .andExpect(header().string("ETag", "W/\"remote\""))
+                    .andExpect(header().string("Last-Modified", "Thu, 13 Jan 2022 00:00:00 GMT"))
+                    .andExpect(header().string("Cache-Control", "no-cache"))
+                    .andExpect(content().string("{\"cryptoName\":\"REMOTE\"}"))
+                    .andExpect(status().isOk());
+            performAsync(get("/crypto/pricesInfo/REMOTE").header("If-None-Match", "W/\"remote\""))
+                    .andDo(print())
+                    .andExpect(header().string("ETag", "W/\"remote\""))
+                    .andExpect(content().string(""))
+                    .andExpect(status().isNotModified());
+            assertThat(receivedEtags, contains("null", "W/\"remote\""));
+        } finally {
+            shard.stop(0);
+        }
+    }
+
     private static int getMonthsSinceLastDataTimestamp() {
         return Period.between(LocalDate.of(2022, 1, 31), LocalDate.now()).getMonths();
     }
-}
\ No newline at end of file
+
+    /**
+     * Performs a request answered asynchronously and dispatches its result.
+     */
+    private ResultActions performAsync(final MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        final MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    /**
+     * Performs a request answered with a future of a streamed body, the body is written after a second async start.
+     */
+    private ResultActions performStreaming(final MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        final MvcResult result = performAsync(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
@@ -1,27 +1,51 @@
 package org.cryptodemo.converters;
 
+import org.cryptodemo.dal.CryptoRepository;
+import org.cryptodemo.dal.SymbolRegistry;
 import org.cryptodemo.data.CryptoName;
-import org.junit.jupiter.api.Assertions;
+import org.cryptodemo.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class StringToCryptoNameConverterTest {
 
-    private StringToCryptoNameConverter converter = new StringToCryptoNameConverter();
+    private StringToCryptoNameConverter converter;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        final CryptoRepository repository = mock(CryptoRepository.class);
+        when(repository.findSymbols()).thenReturn(Set.of("BTC", "ETH"));
+        final SymbolRegistry registry = new SymbolRegistry(repository, new ShardRouter(false, "", List.of(), 1));
+        registry.refresh();
+        converter = new StringToCryptoNameConverter(registry);
+    }
 
     @Test
     public void convert_upperCase() {
-        assertEquals(CryptoName.BTC, converter.convert("BTC"));
+        assertSame(CryptoName.of("BTC"), converter.convert("BTC"));
     }
 
     @Test
     public void convert_anyCase() {
-        assertEquals(CryptoName.BTC, converter.convert("bTc"));
+        assertSame(CryptoName.of("BTC"), converter.convert("bTc"));
     }
 
     @Test()
     public void convert_invalid() {
-        Assertions.assertThrows(IllegalArgumentException.class, () -> converter.convert("unknown"));
+        final CryptoName unknown = converter.convert("unknown");
+        assertEquals("UNKNOWN", unknown.name());
+        assertEquals(CryptoName.UNKNOWN_ID, unknown.id());
+        assertNotEquals(unknown, converter.convert("unknown"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package org.cryptodemo.dal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryPriceFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndMap() throws IOException {
+        final Path file = directory.resolve("ETH_values.bin");
+        BinaryPriceFile.write(file, new long[]{1, 2, 3}, new long[]{1050, 990, 1000}, 2, 3);
+        final PriceColumns columns = BinaryPriceFile.map(file);
+        assertEquals(3, columns.size());
+        assertEquals(2, columns.timestamp(1));
+        assertEquals(990, columns.unscaledPrice(1));
+        assertEquals(2, columns.scale());
+        assertEquals(1, columns.comparePrices(0, 2));
+    }
+
+    @Test
+    void map_notBinaryPriceFile_throws() throws IOException {
+        final Path file = Files.writeString(directory.resolve("ETH_values.bin"), "timestamp,symbol,price\n1,ETH,10\n");
+        assertThrows(IOException.class, () -> BinaryPriceFile.map(file));
+    }
+
+    @Test
+    void map_unsupportedScale_throws() throws IOException {
+        final Path tooPrecise = directory.resolve("ETH_values.bin");
+        BinaryPriceFile.write(tooPrecise, new long[]{1}, new long[]{10}, 19, 1);
+        assertThrows(IOException.class, () -> BinaryPriceFile.map(tooPrecise));
+        final Path negative = directory.resolve("BTC_values.bin");
+        BinaryPriceFile.write(negative, new long[]{1}, new long[]{10}, -1, 1);
+        assertThrows(IOException.class, () -> BinaryPriceFile.map(negative));
+    }
+
+    @Test
+    void map_unsortedRows_throws() throws IOException {
+        final Path file = directory.resolve("ETH_values.bin");
+        BinaryPriceFile.write(file, new long[]{2, 1}, new long[]{10, 11}, 0, 2);
+        assertThrows(IOException.class, () -> BinaryPriceFile.map(file));
+    }
+}
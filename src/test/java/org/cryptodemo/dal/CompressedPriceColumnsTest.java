@@ -0,0 +1,82 @@
+package org.cryptodemo.dal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompressedPriceColumnsTest {
+
+    @Test
+    void of_readsRowsBack() {
+        final PriceRows rows = rows(new Random(42), 1000, 0);
+        final CompressedPriceColumns columns = CompressedPriceColumns.of(rows);
+        assertEquals(rows.size(), columns.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.timestamp(i), columns.timestamp(i));
+            assertEquals(rows.unscaledPrice(i), columns.unscaledPrice(i));
+        }
+        // evenly spaced ticks with small price moves take a few bits per row instead of 16 bytes
+        assertThat(columns.encodedBytes(), lessThan(rows.size() * 4L));
+    }
+
+    @Test
+    void append_keepsEarlierColumns() {
+        final Random random = new Random(7);
+        final PriceRows first = rows(random, 200, 0);
+        final CompressedPriceColumns columns = CompressedPriceColumns.of(first);
+        final PriceRows second = rows(random, 100, first.timestamp(first.size() - 1) + 1);
+        final CompressedPriceColumns appended = columns.append(second);
+        assertEquals(300, appended.size());
+        assertEquals(second.timestamp(99), appended.timestamp(299));
+        assertEquals(second.unscaledPrice(0), appended.unscaledPrice(200));
+        assertEquals(200, columns.size());
+        assertEquals(first.timestamp(199), columns.timestamp(199));
+        assertEquals(first.unscaledPrice(150), columns.unscaledPrice(150));
+    }
+
+    @Test
+    void indexFromAndIndexUntil_matchHeapColumns() {
+        final PriceRows rows = rows(new Random(3), 300, 0);
+        final CompressedPriceColumns columns = CompressedPriceColumns.of(rows);
+        final HeapPriceColumns heapColumns = new HeapPriceColumns(rows.timestamps(), rows.unscaledPrices(), rows.scale());
+        for (int i = 0; i < rows.size(); i++) {
+            for (long timestamp = rows.timestamp(i) - 1; timestamp <= rows.timestamp(i) + 1; timestamp++) {
+                assertEquals(heapColumns.indexFrom(timestamp), columns.indexFrom(timestamp));
+                assertEquals(heapColumns.indexUntil(timestamp), columns.indexUntil(timestamp));
+            }
+        }
+    }
+
+    @Test
+    void minIndexAndMaxIndex_matchLinearScan() {
+        final PriceRows rows = rows(new Random(11), 300, 0);
+        final CompressedPriceColumns columns = CompressedPriceColumns.of(rows);
+        for (int from = 0; from < rows.size(); from += 5) {
+            long min = rows.unscaledPrice(from), max = rows.unscaledPrice(from);
+            for (int until = from + 1; until <= rows.size(); until++) {
+                min = Math.min(min, rows.unscaledPrice(until - 1));
+                max = Math.max(max, rows.unscaledPrice(until - 1));
+                assertEquals(min, columns.unscaledPrice(columns.minIndex(from, until)));
+                assertEquals(max, columns.unscaledPrice(columns.maxIndex(from, until)));
+            }
+        }
+    }
+
+    /**
+     * Rows one to three time units apart, with occasional large jumps of timestamps and prices.
+     */
+    private static PriceRows rows(final Random random, final int count, final long firstTimestamp) {
+        final PriceRows rows = new PriceRows();
+        long timestamp = firstTimestamp, price = 1_000_000;
+        for (int i = 0; i < count; i++) {
+            rows.add(timestamp, price, 2);
+            timestamp += i % 50 == 49 ? 1L << 40 : 1 + random.nextInt(3);
+            price += i % 70 == 69 ? random.nextLong() >> 4 : random.nextInt(21) - 10;
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,96 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.Price;
+import org.cryptodemo.data.entity.CryptoRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"datasource.watch.enabled=false"})
+class CryptoRepositoryAppendedRowsTest {
+
+    private static final CryptoName ETH = CryptoName.of("ETH");
+    private static final CryptoName LTC = CryptoName.of("LTC");
+    private static final CryptoName SOL = CryptoName.of("SOL");
+
+    private static final Path DIRECTORY = createDirectory();
+
+    @Autowired
+    private CryptoRepository repository;
+
+    @Autowired
+    private SymbolRegistry symbolRegistry;
+
+    @DynamicPropertySource
+    static void datasource(final DynamicPropertyRegistry registry) {
+        registry.add("datasource.url", () -> "jdbc:relique:csv:" + DIRECTORY);
+    }
+
+    @Test
+    void readAppendedRows_addsCompleteParseableLines() throws IOException, SQLException {
+        final Path file = Files.writeString(DIRECTORY.resolve("ETH_values.csv"), "timestamp,symbol,price\n1,ETH,10\n2,ETH,11\n");
+        assertEquals(2, repository.getPriceSeries(ETH).size());
+
+        Files.writeString(file, "3,ETH,12\n4,ETH,13,extra\n5,ETH,9\n6,ETH,1", StandardOpenOption.APPEND);
+        assertEquals(2, repository.readAppendedRows(ETH));
+        Files.writeString(file, "4\n", StandardOpenOption.APPEND);
+        assertEquals(1, repository.readAppendedRows(ETH));
+
+        assertThat(repository.getCryptoRecordsTimestamps(ETH, 2, 6), contains(
+                new CryptoRecord(6, "ETH", Price.parse("14")),
+                new CryptoRecord(5, "ETH", Price.parse("9")),
+                new CryptoRecord(3, "ETH", Price.parse("12")),
+                new CryptoRecord(2, "ETH", Price.parse("11"))));
+        final PriceSeries series = repository.getPriceSeries(ETH);
+        assertEquals(Price.parse("9"), series.price(series.minPriceIndex(0, series.size())));
+    }
+
+    @Test
+    void readAppendedRows_lastLineUnterminatedOnFirstLoad() throws IOException, SQLException {
+        // the price 1234.5 is still being written
+        final Path file = Files.writeString(DIRECTORY.resolve("SOL_values.csv"), "timestamp,symbol,price\n1,SOL,10\n2,SOL,12");
+        assertEquals(1, repository.getPriceSeries(SOL).size());
+
+        Files.writeString(file, "34.5\n", StandardOpenOption.APPEND);
+        assertEquals(1, repository.readAppendedRows(SOL));
+        assertThat(repository.getCryptoRecordsTimestamps(SOL, 1, 2), contains(
+                new CryptoRecord(2, "SOL", Price.parse("1234.5")),
+                new CryptoRecord(1, "SOL", Price.parse("10.0"))));
+    }
+
+    @Test
+    void readAppendedRows_notLoaded_skipped() throws IOException, SQLException {
+        Files.writeString(DIRECTORY.resolve("LTC_values.csv"), "timestamp,symbol,price\n1,LTC,10\n");
+        assertEquals(0, repository.readAppendedRows(LTC));
+    }
+
+    @Test
+    void findSymbols_newFileRegisteredOnRefresh() throws IOException {
+        Files.writeString(DIRECTORY.resolve("ADA_values.csv"), "timestamp,symbol,price\n1,ADA,1\n");
+        assertTrue(symbolRegistry.refresh());
+        assertEquals(Optional.of(CryptoName.of("ADA")), symbolRegistry.find("ADA"));
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("prices");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,38 +1,54 @@
 package org.cryptodemo.dal;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.Price;
 import org.cryptodemo.data.entity.CryptoRecord;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
-import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest(properties = {"datasource.url=jdbc:relique:csv:classpath:test-db"})
 class CryptoRepositoryTest {
 
+    private static final CryptoName BTC = CryptoName.of("BTC");
+    private static final CryptoName XRP = CryptoName.of("XRP");
+
     @Autowired
     private CryptoRepository repository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void getCryptoRecordsTimestamps_loadsAndIgnoresInvalidRows() throws SQLException {
-        final List<CryptoRecord> records = repository.getCryptoRecordsTimestamps(CryptoName.BTC, 1, 4);
+        final List<CryptoRecord> records = repository.getCryptoRecordsTimestamps(BTC, 1, 4);
         assertThat(records, contains(
-                new CryptoRecord(4, "BTC", new BigDecimal("13")),
-                new CryptoRecord(2, "BTC", new BigDecimal("11")),
-                new CryptoRecord(1, "BTC", new BigDecimal("10"))
+                new CryptoRecord(4, "BTC", Price.parse("13")),
+                new CryptoRecord(2, "BTC", Price.parse("11")),
+                new CryptoRecord(1, "BTC", Price.parse("10"))
         ));
     }
 
+    @Test
+    void getCryptoRecordsTimestamps_countsRowsAndQueries() throws SQLException {
+        repository.getCryptoRecordsTimestamps(BTC, 1, 2);
+        assertThat(meterRegistry.get("crypto.repository.rows.read").tag("symbol", "BTC").counter().count(), is(3.0));
+        assertThat(meterRegistry.get("crypto.repository.query").tag("symbol", "BTC").timer().count(), greaterThan(0L));
+    }
+
     @Test
     void getCryptoRecordsTimestamps_noData_throws() {
         assertThrows(SQLException.class,
-                () -> repository.getCryptoRecordsTimestamps(CryptoName.XRP, 1, 4));
+                () -> repository.getCryptoRecordsTimestamps(XRP, 1, 4));
     }
 }
\ No newline at end of file
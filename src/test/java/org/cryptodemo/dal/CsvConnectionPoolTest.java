@@ -0,0 +1,50 @@
+package org.cryptodemo.dal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "datasource.url=jdbc:relique:csv:classpath:test-db",
+        "datasource.pool.size=1",
+        "datasource.pool.acquire-timeout-ms=10"})
+class CsvConnectionPoolTest {
+
+    @Autowired
+    private CsvConnectionPool pool;
+
+    @Test
+    void acquire_exhausted_throws() throws SQLException {
+        try (CsvConnectionPool.PooledConnection ignored = pool.acquire()) {
+            assertThrows(SQLTimeoutException.class, () -> pool.acquire());
+        }
+    }
+
+    @Test
+    void close_twice_releasesOnce() throws SQLException {
+        final CsvConnectionPool.PooledConnection connection = pool.acquire();
+        connection.close();
+        connection.close();
+        try (CsvConnectionPool.PooledConnection ignored = pool.acquire()) {
+            assertThrows(SQLTimeoutException.class, () -> pool.acquire());
+        }
+    }
+
+    @Test
+    void prepareStatement_cachedPerConnection() throws SQLException {
+        final PreparedStatement statement;
+        try (CsvConnectionPool.PooledConnection connection = pool.acquire()) {
+            statement = connection.prepareStatement("SELECT * FROM BTC_values");
+        }
+        try (CsvConnectionPool.PooledConnection connection = pool.acquire()) {
+            assertSame(statement, connection.prepareStatement("SELECT * FROM BTC_values"));
+        }
+    }
+}
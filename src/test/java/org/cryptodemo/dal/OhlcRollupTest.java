@@ -0,0 +1,69 @@
+package org.cryptodemo.dal;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OhlcRollupTest {
+
+    private static final ZoneId UTC = ZoneOffset.UTC;
+    private static final long DAY_START = Instant.parse("2022-01-13T00:00:00Z").toEpochMilli();
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    private final long[] timestamps = {
+            DAY_START + 10, DAY_START + 20, DAY_START + 30,
+            DAY_START + 2 * HOUR, DAY_START + 2 * HOUR + 5,
+            DAY_START + 5 * HOUR
+    };
+    private final int[] prices = {5, 7, 3, 4, 9, 6};
+    private final OhlcRollup rollup = OhlcRollup.build(RollupResolution.HOUR, UTC, i -> timestamps[i], timestamps.length,
+            (left, right) -> Integer.compare(prices[left], prices[right]));
+
+    @Test
+    void build_bucketsOnlyForPeriodsWithData() {
+        assertEquals(3, rollup.bucketCount());
+        assertEquals(DAY_START, rollup.bucketStart(0));
+        assertEquals(DAY_START + 2 * HOUR, rollup.bucketStart(1));
+        assertEquals(DAY_START + 5 * HOUR, rollup.bucketStart(2));
+    }
+
+    @Test
+    void build_keepsOpenCloseLowHighRows() {
+        assertEquals(0, rollup.firstIndex(0));
+        assertEquals(3, rollup.untilIndex(0));
+        assertEquals(2, rollup.minIndex(0));
+        assertEquals(1, rollup.maxIndex(0));
+        assertEquals(3, rollup.firstIndex(1));
+        assertEquals(5, rollup.untilIndex(1));
+    }
+
+    @Test
+    void firstBucketFromAndBucketUntil() {
+        assertEquals(0, rollup.firstBucketFrom(0));
+        assertEquals(1, rollup.firstBucketFrom(1));
+        assertEquals(2, rollup.firstBucketFrom(4));
+        assertEquals(0, rollup.bucketUntil(2));
+        assertEquals(1, rollup.bucketUntil(3));
+        assertEquals(3, rollup.bucketUntil(6));
+    }
+
+    @Test
+    void minIndexAndMaxIndex_overBuckets() {
+        assertEquals(2, rollup.minIndex(0, 3));
+        assertEquals(4, rollup.maxIndex(0, 3));
+        assertEquals(5, rollup.minIndex(2, 3));
+    }
+
+    @Test
+    void bucketStart_month() {
+        final long timestamp = Instant.parse("2022-02-17T13:45:00Z").toEpochMilli();
+        final long monthStart = RollupResolution.MONTH.bucketStart(timestamp, UTC);
+        assertEquals(Instant.parse("2022-02-01T00:00:00Z").toEpochMilli(), monthStart);
+        assertEquals(Instant.parse("2022-03-01T00:00:00Z").toEpochMilli(), RollupResolution.MONTH.nextBucketStart(monthStart, UTC));
+    }
+}
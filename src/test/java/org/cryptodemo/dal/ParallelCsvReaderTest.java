@@ -0,0 +1,106 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.Price;
+import org.cryptodemo.data.entity.CryptoRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelCsvReaderTest {
+
+    private static final String CSV = "timestamp,symbol,price\r\n2,BTC,11.5\r\n1,BTC, 10 \n3,BTC,12,extra\nfoo,BTC,1\n"
+            + "4,BTC,1.3e1\n5,BTC,-0.125\n6,BTC,\n7,BTC,1234567890.1234567891\n8,BTC,13.25";
+
+    @TempDir
+    Path directory;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void read_matchesLineParser() throws IOException {
+        final Path file = Files.writeString(directory.resolve("BTC_values.csv"), CSV);
+        // parts of a few lines, cut within lines
+        assertRows(new ParallelCsvReader(pool, 16).read(file, Files.size(file)));
+        assertRows(new ParallelCsvReader(pool, 1 << 20).read(file, Files.size(file)));
+    }
+
+    @Test
+    void read_stopsAtLength() throws IOException {
+        final Path file = Files.writeString(directory.resolve("BTC_values.csv"), "1,BTC,10\n2,BTC,11\n3,BTC,12\n");
+        final PriceRows rows = new ParallelCsvReader(pool, 4).read(file, 18);
+        assertEquals(2, rows.size());
+        assertEquals(2, rows.timestamp(1));
+    }
+
+    @Test
+    void readZipEntry_matchesLineParser() throws IOException {
+        final Path archive = directory.resolve("prices.zip");
+        try (OutputStream file = Files.newOutputStream(archive); ZipOutputStream zip = new ZipOutputStream(file)) {
+            zip.putNextEntry(new ZipEntry("ETH_values.csv"));
+            zip.write("1,ETH,1\n".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("BTC_values.csv"));
+            zip.write(CSV.getBytes(StandardCharsets.UTF_8));
+        }
+        // blocks shorter than the header line are grown
+        assertRows(new ParallelCsvReader(pool, 8).readZipEntry(archive, "BTC_values.csv"));
+        assertThrows(NoSuchFileException.class, () -> new ParallelCsvReader(pool, 8).readZipEntry(archive, "XRP_values.csv"));
+    }
+
+    @Test
+    void readZipEntry_emptyEntry() throws IOException {
+        final Path archive = zip("BTC_values.csv", "");
+        assertEquals(0, new ParallelCsvReader(pool, 8).readZipEntry(archive, "BTC_values.csv").size());
+    }
+
+    @Test
+    void readZipEntry_entryOfBlockSize() throws IOException {
+        // ends with a line terminator at the end of the block, the next read finds nothing
+        final Path archive = zip("BTC_values.csv", "1,BTC,1\n");
+        final PriceRows rows = new ParallelCsvReader(pool, 8).readZipEntry(archive, "BTC_values.csv");
+        assertEquals(1, rows.size());
+        assertEquals(1, rows.timestamp(0));
+    }
+
+    private Path zip(final String entryName, final String content) throws IOException {
+        final Path archive = directory.resolve("prices.zip");
+        try (OutputStream file = Files.newOutputStream(archive); ZipOutputStream zip = new ZipOutputStream(file)) {
+            zip.putNextEntry(new ZipEntry(entryName));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return archive;
+    }
+
+    private static void assertRows(final PriceRows rows) {
+        final PriceRows expected = new PriceRows();
+        for (String line : CSV.split("\n")) {
+            final CryptoRecord record = PriceLineParser.parse(line);
+            if (record != null) {
+                expected.add(record.timestamp(), record.price());
+            }
+        }
+        assertEquals(expected.size(), rows.size());
+        assertEquals(expected.scale(), rows.scale());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.timestamp(i), rows.timestamp(i));
+            assertEquals(new Price(expected.unscaledPrice(i), expected.scale()), new Price(rows.unscaledPrice(i), rows.scale()));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.Price;
+import org.cryptodemo.data.entity.CryptoRecord;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceSeriesTest {
+
+    private final PriceSeries series = PriceSeries.of("ETH", rows(new long[]{30, 10, 20, 40}, "3", "1", "2", "4"));
+
+    @Test
+    void of_sortsByTimestamp() {
+        assertEquals(10, series.timestamp(0));
+        assertEquals(Price.parse("1"), series.price(0));
+        assertEquals(40, series.timestamp(3));
+        assertEquals(Price.parse("4"), series.price(3));
+    }
+
+    @Test
+    void fromIndexAndUntilIndex() {
+        assertEquals(0, series.fromIndex(5));
+        assertEquals(1, series.fromIndex(20));
+        assertEquals(2, series.fromIndex(21));
+        assertEquals(4, series.fromIndex(41));
+        assertEquals(0, series.untilIndex(5));
+        assertEquals(2, series.untilIndex(20));
+        assertEquals(4, series.untilIndex(40));
+    }
+
+    @Test
+    void getRecordsDescending_boundsInclusive() {
+        assertThat(series.getRecordsDescending(20, 30), contains(
+                new CryptoRecord(30, "ETH", Price.parse("3")),
+                new CryptoRecord(20, "ETH", Price.parse("2"))));
+    }
+
+    @Test
+    void getRecordsDescending_emptyRange() {
+        assertThat(series.getRecordsDescending(41, 50), empty());
+        assertThat(series.getRecordsDescending(30, 20), empty());
+    }
+
+    @Test
+    void cursor_ascendingWithinBounds() {
+        final PriceCursor cursor = series.cursor(20, 30);
+        assertTrue(cursor.next());
+        assertEquals(20, cursor.timestamp());
+        assertEquals(Price.parse("2"), cursor.price());
+        assertTrue(cursor.next());
+        assertEquals(30, cursor.timestamp());
+        assertFalse(cursor.next());
+        assertFalse(cursor.next());
+        assertFalse(series.cursor(30, 20).next());
+    }
+
+    @Test
+    void append_newerRows() {
+        final PriceSeries appended = series.append(rows(new long[]{60, 50}, "0", "9"));
+        assertEquals(6, appended.size());
+        assertEquals(50, appended.timestamp(4));
+        assertEquals(Price.parse("0"), appended.price(appended.minPriceIndex(0, appended.size())));
+        assertEquals(Price.parse("9"), appended.price(appended.maxPriceIndex(2, appended.size())));
+        assertEquals(4, series.size());
+        assertEquals(Price.parse("1"), series.price(series.minPriceIndex(0, series.size())));
+    }
+
+    @Test
+    void append_olderRows_rebuildsSortedSeries() {
+        final PriceSeries appended = series.append(rows(new long[]{15}, "7"));
+        assertThat(appended.getRecordsDescending(10, 20), contains(
+                new CryptoRecord(20, "ETH", Price.parse("2")),
+                new CryptoRecord(15, "ETH", Price.parse("7")),
+                new CryptoRecord(10, "ETH", Price.parse("1"))));
+    }
+
+    @Test
+    void append_morePreciseRows_rescalesSeries() {
+        final PriceSeries appended = series.append(rows(new long[]{50}, "4.25"));
+        assertEquals(2, appended.scale());
+        assertEquals(Price.parse("1.00"), appended.price(appended.minPriceIndex(0, appended.size())));
+        assertEquals(Price.parse("4.25"), appended.price(appended.maxPriceIndex(0, appended.size())));
+        assertEquals(0, series.scale());
+    }
+
+    @Test
+    void of_manyDecimalPlaces_roundedToMaxScale() {
+        // at 18 decimal places the large price does not fit into long
+        final PriceSeries mixed = PriceSeries.of("BTC", rows(new long[]{10, 20, 30}, "60000.12", "0.123456789050000001", "1.5"));
+        assertEquals(PriceRows.MAX_SCALE, mixed.scale());
+        assertEquals(Price.parse("60000.1200000000"), mixed.price(0));
+        assertEquals(Price.parse("0.1234567891"), mixed.price(1));
+        assertEquals(Price.parse("1.5000000000"), mixed.price(2));
+    }
+
+    @Test
+    void append_manyDecimalPlaces_roundedToMaxScale() {
+        final PriceSeries btc = PriceSeries.of("BTC", rows(new long[]{10, 30}, "60000.12", "60001.5"));
+        final PriceSeries appended = btc.append(rows(new long[]{20}, "0.123456789049999999"));
+        assertEquals(PriceRows.MAX_SCALE, appended.scale());
+        assertThat(appended.getRecordsDescending(10, 30), contains(
+                new CryptoRecord(30, "BTC", Price.parse("60001.5000000000")),
+                new CryptoRecord(20, "BTC", Price.parse("0.1234567890")),
+                new CryptoRecord(10, "BTC", Price.parse("60000.1200000000"))));
+    }
+
+    @Test
+    void append_compressedStorage_matchesHeap() {
+        final PriceSeries heap = PriceSeries.of("ETH", rows(new long[]{30, 10, 20, 40}, "3", "1", "2", "4"));
+        PriceSeries compressed = PriceSeries.of("ETH", rows(new long[]{30, 10, 20, 40}, "3", "1", "2", "4"), PriceStorage.COMPRESSED);
+        PriceSeries appendedHeap = heap;
+        for (int i = 0; i < 300; i++) {
+            final long timestamp = 50 + 10L * i;
+            final String price = Integer.toString((i * 37) % 101);
+            appendedHeap = appendedHeap.append(rows(new long[]{timestamp}, price));
+            compressed = compressed.append(rows(new long[]{timestamp}, price));
+        }
+        assertEquals(appendedHeap.size(), compressed.size());
+        for (int from = 0; from < compressed.size(); from += 17) {
+            for (int until = from + 1; until <= compressed.size(); until += 13) {
+                assertEquals(appendedHeap.price(appendedHeap.minPriceIndex(from, until)), compressed.price(compressed.minPriceIndex(from, until)));
+                assertEquals(appendedHeap.price(appendedHeap.maxPriceIndex(from, until)), compressed.price(compressed.maxPriceIndex(from, until)));
+            }
+        }
+        assertEquals(appendedHeap.getRecordsDescending(25, 1000), compressed.getRecordsDescending(25, 1000));
+    }
+
+    private static PriceRows rows(final long[] timestamps, final String... prices) {
+        final PriceRows rows = new PriceRows();
+        for (int i = 0; i < timestamps.length; i++) {
+            rows.add(timestamps[i], Price.parse(prices[i]));
+        }
+        return rows;
+    }
+}
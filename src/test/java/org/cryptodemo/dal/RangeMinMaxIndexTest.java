@@ -0,0 +1,33 @@
+package org.cryptodemo.dal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RangeMinMaxIndexTest {
+
+    @Test
+    void minIndexAndMaxIndex_matchLinearScan() {
+        final Random random = new Random(42);
+        final int[] values = random.ints(257, 0, 100).toArray();
+        final RangeMinMaxIndex index = new RangeMinMaxIndex(values.length, (left, right) -> Integer.compare(values[left], values[right]));
+        for (int from = 0; from < values.length; from++) {
+            int min = values[from], max = values[from];
+            for (int until = from + 1; until <= values.length; until++) {
+                min = Math.min(min, values[until - 1]);
+                max = Math.max(max, values[until - 1]);
+                assertEquals(min, values[index.minIndex(from, until)]);
+                assertEquals(max, values[index.maxIndex(from, until)]);
+            }
+        }
+    }
+
+    @Test
+    void minIndexAndMaxIndex_singleRow() {
+        final RangeMinMaxIndex index = new RangeMinMaxIndex(1, (left, right) -> 0);
+        assertEquals(0, index.minIndex(0, 1));
+        assertEquals(0, index.maxIndex(0, 1));
+    }
+}
@@ -0,0 +1,44 @@
+package org.cryptodemo.dal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingMinMaxTest {
+
+    @Test
+    void moveTo_matchesLinearScan() {
+        final Random random = new Random(42);
+        final PriceRows rows = new PriceRows();
+        long timestamp = 0;
+        for (int i = 0; i < 2000; i++) {
+            // repeated prices and timestamps, and gaps longer than the window
+            timestamp += i % 300 == 299 ? 1000 : random.nextInt(3);
+            rows.add(timestamp, random.nextInt(20), 0);
+        }
+        final PriceSeries series = PriceSeries.of("BTC", rows);
+        final SlidingMinMax window = new SlidingMinMax(series);
+        for (long until = -5; until <= timestamp + 5; until += 1 + random.nextInt(7)) {
+            final long from = until - 40;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < series.size(); i++) {
+                if (series.timestamp(i) >= from && series.timestamp(i) <= until) {
+                    min = Math.min(min, series.unscaledPrice(i));
+                    max = Math.max(max, series.unscaledPrice(i));
+                }
+            }
+            if (min == Long.MAX_VALUE) {
+                assertFalse(window.moveTo(from, until));
+            } else {
+                assertTrue(window.moveTo(from, until));
+                assertEquals(min, series.unscaledPrice(window.minIndex()));
+                assertEquals(max, series.unscaledPrice(window.maxIndex()));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.cryptodemo.dal;
+
+import org.cryptodemo.data.CryptoName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"datasource.url=jdbc:relique:csv:classpath:test-db"})
+class SymbolRegistryTest {
+
+    @Autowired
+    private SymbolRegistry registry;
+
+    @Test
+    void symbols_listsPriceFiles() {
+        assertThat(registry.symbols(), contains(CryptoName.of("BTC")));
+    }
+
+    @Test
+    void find_anyCase() {
+        assertEquals(Optional.of(CryptoName.of("BTC")), registry.find("btc"));
+        assertEquals(Optional.empty(), registry.find("XRP"));
+    }
+
+    @Test
+    void contains_onlyRegisteredSymbols() {
+        assertTrue(registry.contains(CryptoName.of("BTC")));
+        assertFalse(registry.contains(CryptoName.unknown("BTC")));
+        assertFalse(registry.refresh());
+    }
+}
@@ -0,0 +1,62 @@
+package org.cryptodemo.data;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceTest {
+
+    @Test
+    void parse() {
+        assertEquals(new Price(4681321, 2), Price.parse("46813.21"));
+        assertEquals(new Price(1290, 4), Price.parse("0.1290"));
+        assertEquals(new Price(-5, 0), Price.parse("-5"));
+        assertEquals(new Price(1500, 0), Price.parse("1.5E+3"));
+    }
+
+    @Test
+    void parse_notANumber_throws() {
+        assertThrows(NumberFormatException.class, () -> Price.parse("abc"));
+        assertThrows(NumberFormatException.class, () -> Price.parse("."));
+        assertThrows(NumberFormatException.class, () -> Price.parse("123456789012345678901234"));
+    }
+
+    @Test
+    void toPlainString_stripsTrailingZeros() {
+        assertEquals("0.129", Price.parse("0.1290").toPlainString());
+        assertEquals("47000", Price.parse("47000.00").toPlainString());
+        assertEquals("0.0005", new Price(5, 4).toPlainString());
+        assertEquals("-1.5", new Price(-150, 2).toPlainString());
+    }
+
+    @Test
+    void normalizedRange_roundsHalfUpAtPriceScale() {
+        final Price min = Price.parse("0.7686");
+        final Price max = Price.parse("0.793");
+        assertEquals(new Price(317, 4), Price.normalizedRange(min, max));
+        assertEquals(0, new BigDecimal("0.0317").compareTo(Price.normalizedRange(min, max).toBigDecimal()));
+        assertEquals(new Price(2, 0), Price.normalizedRange(Price.parse("2"), Price.parse("5")));
+        assertNull(Price.normalizedRange(Price.parse("0"), Price.parse("5")));
+    }
+
+    @Test
+    void compareTo_differentScales() {
+        assertTrue(Price.parse("1.5").compareTo(Price.parse("1.45")) > 0);
+        assertEquals(0, Price.parse("2").compareTo(Price.parse("2.000")));
+    }
+
+    @Test
+    void json_readsWrittenDecimal() throws JsonProcessingException {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final Price price = new Price(12900, 5);
+        assertEquals("0.129", objectMapper.writeValueAsString(price));
+        assertEquals(new Price(129, 3), objectMapper.readValue(objectMapper.writeValueAsString(price), Price.class));
+    }
+}
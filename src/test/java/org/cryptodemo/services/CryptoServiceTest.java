@@ -1,124 +1,312 @@
 package org.cryptodemo.services;
 
-import com.google.common.collect.ImmutableList;
 import org.cryptodemo.dal.CryptoRepository;
+import org.cryptodemo.dal.PriceRows;
+import org.cryptodemo.dal.PriceSeries;
+import org.cryptodemo.dal.SymbolRegistry;
 import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.Price;
+import org.cryptodemo.data.dto.Candle;
+import org.cryptodemo.data.dto.CryptoStatsQuery;
 import org.cryptodemo.data.dto.CryptoStatsWithNormalizedRange;
 import org.cryptodemo.data.dto.CryptoTimeRangeStats;
+import org.cryptodemo.data.dto.ExtendedPriceStats;
 import org.cryptodemo.data.dto.PriceStats;
+import org.cryptodemo.data.dto.RollingRange;
 import org.cryptodemo.data.entity.CryptoRecord;
+import org.cryptodemo.errors.DataNotFoundException;
+import org.cryptodemo.stats.PriceStatsAccumulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
 
-import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
-import static java.util.Collections.emptyList;
+import static org.cryptodemo.time.TimeUtils.getUnixEpochMillisNMonthsBack;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
 class CryptoServiceTest {
 
+    private static final CryptoName BTC = CryptoName.of("BTC");
+    private static final CryptoName ETH = CryptoName.of("ETH");
+
+    private static final long SYMBOL_TIMEOUT_MILLIS = 500;
+
     @Mock
     private CryptoRepository repository;
 
-    @InjectMocks
+    @Mock
+    private SymbolRegistry symbolRegistry;
+
+    private ExecutorService executor;
     private CryptoService service;
 
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        when(symbolRegistry.symbols()).thenReturn(List.of(BTC, ETH));
+        when(symbolRegistry.contains(BTC)).thenReturn(true);
+        when(symbolRegistry.contains(ETH)).thenReturn(true);
+        service = new CryptoService(repository, symbolRegistry, executor, new CryptoStatsCache(1, 100, 60_000),
+                new DailyLeaderboard(repository, symbolRegistry), new ExtendedStatsCalculator(1000), SYMBOL_TIMEOUT_MILLIS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
     @Test
     void getCryptoInfo() throws SQLException {
-        when(repository.getCryptoRecordsTimestamps(eq(CryptoName.ETH), anyLong(), anyLong()))
-                .thenReturn(ImmutableList.of(
-                        new CryptoRecord(4, "ETH", new BigDecimal(4)),
-                        new CryptoRecord(3, "ETH", new BigDecimal(1)),
-                        new CryptoRecord(2, "ETH", new BigDecimal(5)),
-                        new CryptoRecord(1, "ETH", new BigDecimal(2))));
-        final CryptoTimeRangeStats cryptoTimeRangeStats = service.getCryptoInfo(CryptoName.ETH, 0);
-        assertThat(cryptoTimeRangeStats, is(new CryptoTimeRangeStats(CryptoName.ETH, 1L, 4L,
-                new PriceStats(new BigDecimal(2), new BigDecimal(4), new BigDecimal(1), new BigDecimal(5)))));
+        final long day = Duration.ofDays(1).toMillis();
+        final long now = getUnixEpochMillisNMonthsBack(0);
+        when(repository.getPriceSeries(ETH))
+                .thenReturn(series(
+                        new CryptoRecord(now - day, "ETH", Price.parse("4")),
+                        new CryptoRecord(now - 2 * day, "ETH", Price.parse("1")),
+                        new CryptoRecord(now - 3 * day, "ETH", Price.parse("5")),
+                        new CryptoRecord(now - 4 * day, "ETH", Price.parse("2"))));
+        final CryptoTimeRangeStats cryptoTimeRangeStats = service.getCryptoInfo(ETH, 0);
+        assertThat(cryptoTimeRangeStats, is(new CryptoTimeRangeStats(ETH, now - 4 * day, now - day,
+                new PriceStats(Price.parse("2"), Price.parse("4"), Price.parse("1"), Price.parse("5")))));
+    }
+
+    @Test
+    void getCryptoInfo_extended() throws SQLException {
+        final long day = Duration.ofDays(1).toMillis();
+        final long now = getUnixEpochMillisNMonthsBack(0);
+        when(repository.getPriceSeries(ETH))
+                .thenReturn(series(
+                        new CryptoRecord(now - day, "ETH", Price.parse("4")),
+                        new CryptoRecord(now - 2 * day, "ETH", Price.parse("1")),
+                        new CryptoRecord(now - 3 * day, "ETH", Price.parse("5")),
+                        new CryptoRecord(now - 4 * day, "ETH", Price.parse("2"))));
+        final ExtendedPriceStats extended = service.getCryptoInfo(ETH, 0, true).priceStats().extended();
+        assertThat(extended.count(), is(4L));
+        assertThat(extended.mean(), closeTo(3, 1e-9));
+        assertThat(extended.stddev(), closeTo(Math.sqrt(2.5), 1e-9));
+        // 2, 5 and 1 each held for a day
+        assertThat(extended.twap(), closeTo(8.0 / 3, 1e-9));
+        assertThat(extended.quantiles().p50(), closeTo(2, 2 * PriceStatsAccumulator.QUANTILE_ACCURACY));
+        assertThat(service.getCryptoInfo(ETH, 0).priceStats().extended(), is(nullValue()));
+    }
+
+    @Test
+    void getCryptoInfo_outsideOfWindow() throws SQLException {
+        when(repository.getPriceSeries(ETH))
+                .thenReturn(series(
+                        new CryptoRecord(2, "ETH", Price.parse("4")),
+                        new CryptoRecord(1, "ETH", Price.parse("2"))));
+        final CryptoTimeRangeStats cryptoTimeRangeStats = service.getCryptoInfo(ETH, 0);
+        assertThat(cryptoTimeRangeStats, is(new CryptoTimeRangeStats(ETH, null, null, null)));
+    }
+
+    @Test
+    void getCryptoInfos_readsEachCryptoOnce() throws SQLException {
+        when(repository.getPriceSeries(ETH))
+                .thenReturn(series(
+                        new CryptoRecord(2, "ETH", Price.parse("4")),
+                        new CryptoRecord(1, "ETH", Price.parse("2"))));
+        when(repository.getPriceSeries(BTC))
+                .thenReturn(series(new CryptoRecord(3, "BTC", Price.parse("8"))));
+        final List<CryptoTimeRangeStats> stats = service.getCryptoInfos(List.of(
+                new CryptoStatsQuery(ETH, 0L, 2L, null),
+                new CryptoStatsQuery(BTC, 0L, 10L, null),
+                new CryptoStatsQuery(ETH, 0L, 10L, null)));
+        assertThat(stats, contains(
+                new CryptoTimeRangeStats(ETH, 1L, 1L,
+                        new PriceStats(Price.parse("2"), Price.parse("2"), Price.parse("2"), Price.parse("2"))),
+                new CryptoTimeRangeStats(BTC, 3L, 3L,
+                        new PriceStats(Price.parse("8"), Price.parse("8"), Price.parse("8"), Price.parse("8"))),
+                new CryptoTimeRangeStats(ETH, 1L, 2L,
+                        new PriceStats(Price.parse("2"), Price.parse("4"), Price.parse("2"), Price.parse("4")))));
+        verify(repository, times(1)).getPriceSeries(ETH);
+        verify(repository, times(1)).getPriceSeries(BTC);
+    }
+
+    @Test
+    void getCryptoInfos_coldStart_cachedUnderLoadedVersion() throws SQLException {
+        // the first read publishes version 1, later reads are served from memory without a new version
+        final AtomicLong dataVersion = new AtomicLong();
+        when(repository.getDataVersion(ETH)).thenAnswer(invocation -> dataVersion.get());
+        when(repository.getPriceSeries(ETH))
+                .thenAnswer(invocation -> {
+                    dataVersion.set(1);
+                    return series(new CryptoRecord(1, "ETH", Price.parse("2")));
+                })
+                .thenReturn(series(new CryptoRecord(1, "ETH", Price.parse("3"))));
+        final List<CryptoStatsQuery> queries = List.of(new CryptoStatsQuery(ETH, 0L, 10L, null));
+        final List<CryptoTimeRangeStats> first = service.getCryptoInfos(queries);
+        final List<CryptoTimeRangeStats> second = service.getCryptoInfos(queries);
+        assertThat(second, is(first));
+    }
+
+    @Test
+    void getCandles_aggregatesIntervalsWithData() throws SQLException {
+        when(repository.getPriceSeries(ETH))
+                .thenReturn(series(
+                        new CryptoRecord(1, "ETH", Price.parse("4")),
+                        new CryptoRecord(12, "ETH", Price.parse("1")),
+                        new CryptoRecord(15, "ETH", Price.parse("5")),
+                        new CryptoRecord(17, "ETH", Price.parse("2")),
+                        new CryptoRecord(35, "ETH", Price.parse("3")),
+                        new CryptoRecord(40, "ETH", Price.parse("6"))));
+        final List<Candle> candles = service.getCandles(ETH, 10, 35, 10);
+        assertThat(candles, contains(
+                new Candle(10, Price.parse("1"), Price.parse("5"), Price.parse("1"), Price.parse("2"), 3),
+                new Candle(30, Price.parse("3"), Price.parse("3"), Price.parse("3"), Price.parse("3"), 1)));
+    }
+
+    @Test
+    void getRollingRanges_slidesWindowOverSamples() throws SQLException {
+        when(repository.getPriceSeries(ETH))
+                .thenReturn(series(
+                        new CryptoRecord(1, "ETH", Price.parse("4.0")),
+                        new CryptoRecord(12, "ETH", Price.parse("2.0")),
+                        new CryptoRecord(15, "ETH", Price.parse("5.0")),
+                        new CryptoRecord(40, "ETH", Price.parse("6.0"))));
+        final List<RollingRange> ranges = service.getRollingRanges(ETH, 5, 40, 10, 10);
+        assertThat(ranges, contains(
+                new RollingRange(10, Price.parse("4.0"), Price.parse("4.0"), Price.parse("0.0")),
+                new RollingRange(20, Price.parse("2.0"), Price.parse("5.0"), Price.parse("1.5")),
+                new RollingRange(40, Price.parse("6.0"), Price.parse("6.0"), Price.parse("0.0"))));
+    }
+
+    @Test
+    void getTopCryptos_cachedUntilDataVersionChanges() throws SQLException {
+        when(repository.getPriceSeries(ETH))
+                .thenReturn(series(new CryptoRecord(2, "ETH", Price.parse("4"))));
+        service.getTopCryptos(0, 10);
+        service.getTopCryptos(0, 10);
+        verify(repository, times(1)).getPriceSeries(ETH);
+
+        when(repository.getDataVersion(ETH)).thenReturn(1L);
+        service.getTopCryptos(0, 10);
+        verify(repository, times(2)).getPriceSeries(ETH);
+    }
+
+    @Test
+    void getCryptoInfo_unknownCrypto_notFoundWithoutRead() throws SQLException {
+        assertThrows(DataNotFoundException.class, () -> service.getCryptoInfo(CryptoName.unknown("new_unsupported"), 0),
+                "No data exists for NEW_UNSUPPORTED");
+        verify(repository, never()).getPriceSeries(any());
     }
 
     @Test
     void getCryptoInfo_throws() throws SQLException {
-        when(repository.getCryptoRecordsTimestamps(eq(CryptoName.ETH), anyLong(), anyLong())).thenThrow(new SQLException("test"));
-        assertThrows(RuntimeException.class, () -> service.getCryptoInfo(CryptoName.ETH, 0), "test");
+        when(repository.getPriceSeries(ETH)).thenThrow(new SQLException("test"));
+        assertThrows(RuntimeException.class, () -> service.getCryptoInfo(ETH, 0), "test");
     }
 
     @Test
     void getTopCryptos() throws SQLException {
-        when(repository.getCryptoRecordsTimestamps(eq(CryptoName.ETH), anyLong(), anyLong()))
-                .thenReturn(ImmutableList.of(
-                        new CryptoRecord(5, "ETH", new BigDecimal(4)),
-                        new CryptoRecord(3, "ETH", new BigDecimal(1)),
-                        new CryptoRecord(2, "ETH", new BigDecimal(5)),
-                        new CryptoRecord(1, "ETH", new BigDecimal(2))));
-        when(repository.getCryptoRecordsTimestamps(eq(CryptoName.BTC), anyLong(), anyLong()))
-                .thenReturn(ImmutableList.of(
-                        new CryptoRecord(7, "BTC", new BigDecimal(3)),
-                        new CryptoRecord(4, "BTC", new BigDecimal(5)),
-                        new CryptoRecord(3, "BTC", new BigDecimal(8)),
-                        new CryptoRecord(1, "BTC", new BigDecimal(1))));
+        when(repository.getPriceSeries(ETH))
+                .thenReturn(series(
+                        new CryptoRecord(5, "ETH", Price.parse("4")),
+                        new CryptoRecord(3, "ETH", Price.parse("1")),
+                        new CryptoRecord(2, "ETH", Price.parse("5")),
+                        new CryptoRecord(1, "ETH", Price.parse("2"))));
+        when(repository.getPriceSeries(BTC))
+                .thenReturn(series(
+                        new CryptoRecord(7, "BTC", Price.parse("3")),
+                        new CryptoRecord(4, "BTC", Price.parse("5")),
+                        new CryptoRecord(3, "BTC", Price.parse("8")),
+                        new CryptoRecord(1, "BTC", Price.parse("1"))));
         final List<CryptoStatsWithNormalizedRange> cryptoTimeRangeStats = service.getTopCryptos(0, 10);
         assertThat(cryptoTimeRangeStats, contains(
-                new CryptoStatsWithNormalizedRange(new CryptoTimeRangeStats(CryptoName.BTC, 1L, 7L,
-                        new PriceStats(new BigDecimal(1), new BigDecimal(3), new BigDecimal(1), new BigDecimal(8))),
-                        new BigDecimal(7)),
-                new CryptoStatsWithNormalizedRange(new CryptoTimeRangeStats(CryptoName.ETH, 1L, 5L,
-                        new PriceStats(new BigDecimal(2), new BigDecimal(4), new BigDecimal(1), new BigDecimal(5))),
-                        new BigDecimal(4))
+                new CryptoStatsWithNormalizedRange(new CryptoTimeRangeStats(BTC, 1L, 7L,
+                        new PriceStats(Price.parse("1"), Price.parse("3"), Price.parse("1"), Price.parse("8"))),
+                        Price.parse("7")),
+                new CryptoStatsWithNormalizedRange(new CryptoTimeRangeStats(ETH, 1L, 5L,
+                        new PriceStats(Price.parse("2"), Price.parse("4"), Price.parse("1"), Price.parse("5"))),
+                        Price.parse("4"))
         ));
     }
 
     @Test
     void getTopCryptos_expectNoThrow() throws SQLException {
-        when(repository.getCryptoRecordsTimestamps(any(), anyLong(), anyLong())).thenThrow(new SQLException("test"));
+        when(repository.getPriceSeries(any())).thenThrow(new SQLException("test"));
         final List<CryptoStatsWithNormalizedRange> topCryptos = service.getTopCryptos(0, 10);
         assertThat(topCryptos, empty());
     }
 
+    @Test
+    void getTopCryptos_slowCryptoLeftOut() throws SQLException {
+        when(repository.getPriceSeries(ETH))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(10 * SYMBOL_TIMEOUT_MILLIS);
+                    return series(new CryptoRecord(1, "ETH", Price.parse("2")));
+                });
+        when(repository.getPriceSeries(BTC))
+                .thenReturn(series(
+                        new CryptoRecord(3, "BTC", Price.parse("2")),
+                        new CryptoRecord(1, "BTC", Price.parse("1"))));
+        final List<CryptoStatsWithNormalizedRange> topCryptos = service.getTopCryptos(0, 10);
+        assertThat(topCryptos, contains(
+                new CryptoStatsWithNormalizedRange(new CryptoTimeRangeStats(BTC, 1L, 3L,
+                        new PriceStats(Price.parse("1"), Price.parse("2"), Price.parse("1"), Price.parse("2"))),
+                        Price.parse("1"))));
+    }
+
     @Test
     void getTopCrypto() throws SQLException {
-        when(repository.getCryptoRecordsTimestamps(eq(CryptoName.ETH), anyLong(), anyLong()))
-                .thenReturn(ImmutableList.of(
-                        new CryptoRecord(5, "ETH", new BigDecimal(4)),
-                        new CryptoRecord(3, "ETH", new BigDecimal(1)),
-                        new CryptoRecord(2, "ETH", new BigDecimal(5)),
-                        new CryptoRecord(1, "ETH", new BigDecimal(2))));
-        when(repository.getCryptoRecordsTimestamps(eq(CryptoName.BTC), anyLong(), anyLong()))
-                .thenReturn(ImmutableList.of(
-                        new CryptoRecord(7, "BTC", new BigDecimal(3)),
-                        new CryptoRecord(4, "BTC", new BigDecimal(5)),
-                        new CryptoRecord(3, "BTC", new BigDecimal(8)),
-                        new CryptoRecord(1, "BTC", new BigDecimal(1))));
+        when(repository.getPriceSeries(ETH))
+                .thenReturn(series(
+                        new CryptoRecord(5, "ETH", Price.parse("4")),
+                        new CryptoRecord(3, "ETH", Price.parse("1")),
+                        new CryptoRecord(2, "ETH", Price.parse("5")),
+                        new CryptoRecord(1, "ETH", Price.parse("2"))));
+        when(repository.getPriceSeries(BTC))
+                .thenReturn(series(
+                        new CryptoRecord(7, "BTC", Price.parse("3")),
+                        new CryptoRecord(4, "BTC", Price.parse("5")),
+                        new CryptoRecord(3, "BTC", Price.parse("8")),
+                        new CryptoRecord(1, "BTC", Price.parse("1"))));
         final Optional<CryptoStatsWithNormalizedRange> cryptoTimeRangeStats = service.getTopCrypto(LocalDate.ofInstant(Instant.ofEpochMilli(10), ZoneId.systemDefault()));
-        assertThat(cryptoTimeRangeStats, is(Optional.of(new CryptoStatsWithNormalizedRange(new CryptoTimeRangeStats(CryptoName.BTC, 1L, 7L,
-                new PriceStats(new BigDecimal(1), new BigDecimal(3), new BigDecimal(1), new BigDecimal(8))),
-                new BigDecimal(7)))));
+        assertThat(cryptoTimeRangeStats, is(Optional.of(new CryptoStatsWithNormalizedRange(new CryptoTimeRangeStats(BTC, 1L, 7L,
+                new PriceStats(Price.parse("1"), Price.parse("3"), Price.parse("1"), Price.parse("8"))),
+                Price.parse("7")))));
     }
 
     @Test
     void getTopCrypto_noData() throws SQLException {
-        when(repository.getCryptoRecordsTimestamps(any(), anyLong(), anyLong())).thenReturn(emptyList());
+        when(repository.getPriceSeries(any())).thenReturn(series());
         final Optional<CryptoStatsWithNormalizedRange> cryptoTimeRangeStats = service.getTopCrypto(LocalDate.now());
         assertThat(cryptoTimeRangeStats, is(Optional.empty()));
     }
 
     @Test
     void getTopCrypto_expectNoThrow() throws SQLException {
-        when(repository.getCryptoRecordsTimestamps(any(), anyLong(), anyLong())).thenThrow(new SQLException("test"));
+        when(repository.getPriceSeries(any())).thenThrow(new SQLException("test"));
         final Optional<CryptoStatsWithNormalizedRange> topCrypto = service.getTopCrypto(LocalDate.now());
         assertTrue(topCrypto.isEmpty());
     }
+
+    private static PriceSeries series(final CryptoRecord... records) {
+        final PriceRows rows = new PriceRows();
+        for (CryptoRecord record : records) {
+            rows.add(record.timestamp(), record.price());
+        }
+        return PriceSeries.of(records.length == 0 ? "" : records[0].symbol(), rows);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package org.cryptodemo.services;
+
+import org.cryptodemo.dal.CryptoRepository;
+import org.cryptodemo.dal.PriceRows;
+import org.cryptodemo.dal.PriceSeries;
+import org.cryptodemo.dal.SymbolRegistry;
+import org.cryptodemo.data.CryptoName;
+import org.cryptodemo.data.Price;
+import org.cryptodemo.data.dto.CryptoStatsWithNormalizedRange;
+import org.cryptodemo.data.dto.DailyTopCrypto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class DailyLeaderboardTest {
+
+    private static final CryptoName BTC = CryptoName.of("BTC");
+    private static final CryptoName ETH = CryptoName.of("ETH");
+    private static final LocalDate DAY = LocalDate.of(2022, 1, 10);
+    private static final LocalDate NEXT_DAY = DAY.plusDays(1);
+
+    @Mock
+    private CryptoRepository repository;
+
+    @Mock
+    private SymbolRegistry symbolRegistry;
+
+    private DailyLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        when(symbolRegistry.symbols()).thenReturn(List.of(BTC, ETH));
+        leaderboard = new DailyLeaderboard(repository, symbolRegistry);
+    }
+
+    @Test
+    void topByDay_rankedPerDay() throws SQLException {
+        when(repository.getPriceSeries(BTC)).thenReturn(series(
+                at(DAY, 1), "1", at(DAY, 2), "2",
+                at(NEXT_DAY, 1), "10", at(NEXT_DAY, 2), "11"));
+        when(repository.getPriceSeries(ETH)).thenReturn(series(
+                at(DAY, 1), "1", at(DAY, 2), "1.5",
+                at(NEXT_DAY, 1), "1", at(NEXT_DAY, 2), "2"));
+        final List<DailyTopCrypto> topByDay = leaderboard.topByDay(DAY.minusDays(1), NEXT_DAY.plusDays(1));
+        assertThat(topByDay.stream().map(DailyTopCrypto::date).toList(), contains(DAY, NEXT_DAY));
+        assertThat(topByDay.get(0).top().crypto().cryptoName(), is(BTC));
+        assertThat(topByDay.get(0).top().normalizedRange(), is(Price.parse("1")));
+        assertThat(topByDay.get(1).top().crypto().cryptoName(), is(ETH));
+        assertThat(topByDay.get(1).top().normalizedRange(), is(Price.parse("1.0")));
+        assertThat(leaderboard.top(DAY.minusDays(1)), is(Optional.empty()));
+    }
+
+    @Test
+    void top_readOnceUntilDataVersionChanges() throws SQLException {
+        when(symbolRegistry.symbols()).thenReturn(List.of(BTC));
+        when(repository.getDataVersion(BTC)).thenReturn(1L);
+        final PriceSeries series = series(at(DAY, 1), "1.00", at(DAY, 2), "2.00");
+        when(repository.getPriceSeries(BTC)).thenReturn(series);
+        leaderboard.top(DAY);
+        leaderboard.top(DAY);
+        verify(repository, times(1)).getPriceSeries(BTC);
+
+        final PriceRows appended = new PriceRows();
+        appended.add(at(NEXT_DAY, 1), Price.parse("4.00"));
+        appended.add(at(NEXT_DAY, 2), Price.parse("5.00"));
+        when(repository.getPriceSeries(BTC)).thenReturn(series.append(appended));
+        when(repository.getDataVersion(BTC)).thenReturn(2L);
+        assertThat(leaderboard.top(NEXT_DAY).map(CryptoStatsWithNormalizedRange::normalizedRange),
+                is(Optional.of(Price.parse("0.25"))));
+        assertThat(leaderboard.top(DAY).map(CryptoStatsWithNormalizedRange::normalizedRange),
+                is(Optional.of(Price.parse("1.00"))));
+        verify(repository, times(2)).getPriceSeries(BTC);
+    }
+
+    @Test
+    void top_unreadableSeriesReadAgainOnlyWhenDataVersionChanges() throws SQLException {
+        when(repository.getDataVersion(BTC)).thenReturn(1L);
+        when(repository.getDataVersion(ETH)).thenReturn(1L);
+        when(repository.getPriceSeries(BTC)).thenReturn(series(at(DAY, 1), "1", at(DAY, 2), "2"));
+        when(repository.getPriceSeries(ETH)).thenThrow(new SQLException("broken file"));
+        assertThat(leaderboard.top(DAY).map(top -> top.crypto().cryptoName()), is(Optional.of(BTC)));
+        leaderboard.top(DAY);
+        verify(repository, times(1)).getPriceSeries(ETH);
+
+        doReturn(series(at(DAY, 1), "1", at(DAY, 2), "3")).when(repository).getPriceSeries(ETH);
+        when(repository.getDataVersion(ETH)).thenReturn(2L);
+        assertThat(leaderboard.top(DAY).map(top -> top.crypto().cryptoName()), is(Optional.of(ETH)));
+        verify(repository, times(2)).getPriceSeries(ETH);
+        verify(repository, times(1)).getPriceSeries(BTC);
+    }
+
+    @Test
+    void top_appendedRowAtStartOfDayUpdatesPreviousDay() throws SQLException {
+        when(symbolRegistry.symbols()).thenReturn(List.of(BTC));
+        when(repository.getDataVersion(BTC)).thenReturn(1L);
+        final PriceSeries series = series(at(DAY, 1), "1", at(DAY, 2), "2");
+        when(repository.getPriceSeries(BTC)).thenReturn(series);
+        assertThat(leaderboard.top(DAY).map(CryptoStatsWithNormalizedRange::normalizedRange),
+                is(Optional.of(Price.parse("1"))));
+
+        final PriceRows appended = new PriceRows();
+        appended.add(at(NEXT_DAY, 0), Price.parse("3"));
+        when(repository.getPriceSeries(BTC)).thenReturn(series.append(appended));
+        when(repository.getDataVersion(BTC)).thenReturn(2L);
+        assertThat(leaderboard.top(DAY).map(CryptoStatsWithNormalizedRange::normalizedRange),
+                is(Optional.of(Price.parse("2"))));
+    }
+
+    private static long at(final LocalDate day, final int hour) {
+        return day.atStartOfDay(ZoneId.systemDefault()).plusHours(hour).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @param timestampsAndPrices alternating timestamps and price strings
+     */
+    private static PriceSeries series(final Object... timestampsAndPrices) {
+        final PriceRows rows = new PriceRows();
+        for (int i = 0; i < timestampsAndPrices.length; i += 2) {
+            rows.add((Long) timestampsAndPrices[i], Price.parse((String) timestampsAndPrices[i + 1]));
+        }
+        return PriceSeries.of("", rows);
+    }
+}
@@ -0,0 +1,55 @@
+package org.cryptodemo.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ShardRingTest {
+
+    private static final List<String> NODES = List.of("http://localhost:8080", "http://localhost:8081", "http://localhost:8082");
+
+    @Test
+    void owner_anyCase() {
+        final ShardRing ring = new ShardRing(NODES, 128);
+        assertEquals(ring.owner("BTC"), ring.owner("btc"));
+    }
+
+    @Test
+    void owner_symbolsSpreadOverNodes() {
+        final ShardRing ring = new ShardRing(NODES, 128);
+        final Map<String, Integer> symbolsPerNode = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            symbolsPerNode.merge(ring.owner("SYMBOL" + i), 1, Integer::sum);
+        }
+        assertThat(symbolsPerNode.size(), is(NODES.size()));
+        symbolsPerNode.values().forEach(symbols -> assertThat(symbols, allOf(greaterThan(700), lessThan(1300))));
+    }
+
+    @Test
+    void owner_addedNodeOnlyTakesOverSymbols() {
+        final ShardRing ring = new ShardRing(NODES, 128);
+        final ShardRing extendedRing = new ShardRing(List.of("http://localhost:8080", "http://localhost:8081",
+                "http://localhost:8082", "http://localhost:8083"), 128);
+        for (int i = 0; i < 3000; i++) {
+            final String owner = extendedRing.owner("SYMBOL" + i);
+            if (!owner.equals("http://localhost:8083")) {
+                assertEquals(ring.owner("SYMBOL" + i), owner);
+            }
+        }
+    }
+
+    @Test
+    void constructor_noNodes() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of(), 128));
+    }
+}
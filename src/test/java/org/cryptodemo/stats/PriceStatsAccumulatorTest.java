@@ -0,0 +1,54 @@
+package org.cryptodemo.stats;
+
+import org.cryptodemo.data.dto.ExtendedPriceStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PriceStatsAccumulatorTest {
+
+    @Test
+    void toStats_singlePass() {
+        final PriceStatsAccumulator accumulator = new PriceStatsAccumulator();
+        accumulator.add(0, 2);
+        accumulator.add(10, 4);
+        accumulator.add(40, 6);
+        final ExtendedPriceStats stats = accumulator.toStats();
+        assertEquals(3, stats.count());
+        assertEquals(4, stats.mean(), 1e-12);
+        assertEquals(Math.sqrt(8.0 / 3), stats.stddev(), 1e-12);
+        assertEquals((2 * 10 + 4 * 30) / 40.0, stats.twap(), 1e-12);
+        assertEquals(4, stats.quantiles().p50(), 4 * PriceStatsAccumulator.QUANTILE_ACCURACY);
+        assertNull(new PriceStatsAccumulator().toStats());
+    }
+
+    @Test
+    void merge_matchesSinglePass() {
+        final Random random = new Random(42);
+        final PriceStatsAccumulator all = new PriceStatsAccumulator();
+        final PriceStatsAccumulator merged = new PriceStatsAccumulator();
+        PriceStatsAccumulator part = new PriceStatsAccumulator();
+        long timestamp = 0;
+        for (int i = 0; i < 1000; i++) {
+            timestamp += 1 + random.nextInt(100);
+            final double price = 1000 + random.nextGaussian() * 50;
+            all.add(timestamp, price);
+            part.add(timestamp, price);
+            if (random.nextInt(50) == 0) {
+                merged.merge(part);
+                part = new PriceStatsAccumulator();
+            }
+        }
+        merged.merge(part);
+        final ExtendedPriceStats expected = all.toStats();
+        final ExtendedPriceStats actual = merged.toStats();
+        assertEquals(expected.count(), actual.count());
+        assertEquals(expected.mean(), actual.mean(), 1e-9);
+        assertEquals(expected.stddev(), actual.stddev(), 1e-9);
+        assertEquals(expected.twap(), actual.twap(), 1e-9);
+        assertEquals(expected.quantiles(), actual.quantiles());
+    }
+}
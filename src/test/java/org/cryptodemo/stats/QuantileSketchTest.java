@@ -0,0 +1,51 @@
+package org.cryptodemo.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+
+    private static final double ACCURACY = 0.01;
+
+    @Test
+    void quantile_withinAccuracyOfExactValue() {
+        final Random random = new Random(42);
+        final double[] values = new double[10_000];
+        final QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        for (int i = 0; i < values.length; i++) {
+            // negative, zero and positive values over several orders of magnitude
+            values[i] = i % 100 == 0 ? 0 : Math.exp(random.nextGaussian() * 3) * (random.nextInt(4) == 0 ? -1 : 1);
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+        for (double quantile : new double[]{0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1}) {
+            final double exact = values[(int) (quantile * (values.length - 1))];
+            assertEquals(exact, sketch.quantile(quantile), Math.abs(exact) * ACCURACY, "quantile " + quantile);
+        }
+    }
+
+    @Test
+    void merge_matchesSingleSketch() {
+        final Random random = new Random(7);
+        final QuantileSketch all = new QuantileSketch(ACCURACY);
+        final QuantileSketch left = new QuantileSketch(ACCURACY);
+        final QuantileSketch right = new QuantileSketch(ACCURACY);
+        for (int i = 0; i < 1000; i++) {
+            // ranges of the parts only overlap partly, so merged buckets are grown on both sides
+            final double value = 100 + random.nextInt(1000) * (i < 500 ? 0.1 : 1);
+            all.add(value);
+            (i < 500 ? left : right).add(value);
+        }
+        right.merge(left);
+        assertEquals(all.count(), right.count());
+        for (double quantile = 0; quantile <= 1; quantile += 0.05) {
+            assertEquals(all.quantile(quantile), right.quantile(quantile));
+        }
+        assertTrue(Double.isNaN(new QuantileSketch(ACCURACY).quantile(0.5)));
+    }
+}
@@ -12,4 +12,11 @@ class TimeUtilsTest {
         final long ts2 = System.currentTimeMillis() / 1000;
         assertTrue(ts2 - ts1 <= 1);
     }
-}
\ No newline at end of file
+
+    @Test
+    void alignDown() {
+        assertEquals(120_000, TimeUtils.alignDown(179_999, 60_000));
+        assertEquals(180_000, TimeUtils.alignDown(180_000, 60_000));
+        assertEquals(-60_000, TimeUtils.alignDown(-1, 60_000));
+    }
+}
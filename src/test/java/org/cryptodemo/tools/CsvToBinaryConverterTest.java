@@ -0,0 +1,25 @@
+package org.cryptodemo.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvToBinaryConverterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void convert_skipsNonParseableLines() throws IOException {
+        final Path csvFile = Files.writeString(directory.resolve("BTC_values.csv"),
+                "timestamp,symbol,price\n2,BTC,11.5\n1,BTC,10\n3,BTC,12,extra\nfoo,BTC,1\n4,BTC,13.25\n");
+        final Path binaryFile = directory.resolve("BTC_values.bin");
+        assertEquals(3, CsvToBinaryConverter.convert(csvFile, binaryFile));
+        assertEquals(16 + 3 * 16, Files.size(binaryFile));
+    }
+}
@@ -0,0 +1,34 @@
+package org.cryptodemo.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyHistogramTest {
+
+    @Test
+    void valueAtQuantile_withinOnePercent() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1_000);
+        }
+        assertEquals(100_000, histogram.totalCount());
+        assertEquals(50_000_000, histogram.valueAtQuantile(0.5), 500_000);
+        assertEquals(99_000_000, histogram.valueAtQuantile(0.99), 990_000);
+        assertEquals(99_900_000, histogram.valueAtQuantile(0.999), 999_000);
+        assertEquals(100_000_000, histogram.valueAtQuantile(1));
+    }
+
+    @Test
+    void add_mergesCounts() {
+        final LatencyHistogram first = new LatencyHistogram();
+        final LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(20);
+        second.record(30);
+        first.add(second);
+        assertEquals(3, first.totalCount());
+        assertEquals(20, first.valueAtQuantile(0.5));
+        assertEquals(30, first.maxValue());
+    }
+}
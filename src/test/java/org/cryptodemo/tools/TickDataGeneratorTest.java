@@ -0,0 +1,49 @@
+package org.cryptodemo.tools;
+
+import org.cryptodemo.dal.PriceLineParser;
+import org.cryptodemo.data.entity.CryptoRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickDataGeneratorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void generate_sortedParseableRows() throws IOException {
+        final long until = Duration.ofDays(2).toMillis();
+        final long rows = TickDataGenerator.generate(directory, "ETH", 0, until, Duration.ofMinutes(1).toMillis(), 1);
+        final List<String> lines = Files.readAllLines(directory.resolve("ETH_values.csv"));
+        assertEquals("timestamp,symbol,price", lines.get(0));
+        assertEquals(rows + 1, lines.size());
+        long previous = -1;
+        for (String line : lines.subList(1, lines.size())) {
+            final CryptoRecord record = PriceLineParser.parse(line);
+            assertNotNull(record, line);
+            assertEquals("ETH", record.symbol());
+            assertTrue(record.timestamp() > previous && record.timestamp() < until, line);
+            assertTrue(record.price().unscaled() > 0, line);
+            previous = record.timestamp();
+        }
+    }
+
+    @Test
+    void generate_sameSeed_sameFile() throws IOException {
+        final Path first = Files.createDirectory(directory.resolve("first"));
+        final Path second = Files.createDirectory(directory.resolve("second"));
+        TickDataGenerator.generate(first, "BTC", 0, 100_000, 1_000, 7);
+        TickDataGenerator.generate(second, "BTC", 0, 100_000, 1_000, 7);
+        assertEquals(Files.readString(first.resolve("BTC_values.csv")), Files.readString(second.resolve("BTC_values.csv")));
+    }
+}